@@ -0,0 +1,182 @@
+package org.javatots.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Generate a synthetic Java source tree of `modules` x `packages` x `classes` with a matching javatots config.
+ * Classes use Lombok, Optional, List/HashMap, FileInputStream, try/catch, same-package siblings and imports from
+ * other packages and modules. Class sizes vary so that some files are much bigger than others.
+ * Usage: CorpusGenerator outputDir modules packages classes [seed]
+ */
+public class CorpusGenerator {
+    public static final String CONFIG_FILE = "config.yaml";
+    public static final String SRC_ROOT = "src/main/java";
+    public static final String BASE_PACKAGE = "org.javatots.gen";
+
+    final int modules;
+    final int packages;
+    final int classes;
+    final Random random;
+
+    public CorpusGenerator(final int modules, final int packages, final int classes, final long seed) {
+        this.modules = modules;
+        this.packages = packages;
+        this.classes = classes;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("usage: CorpusGenerator outputDir modules packages classes [seed]");
+            System.exit(1);
+        }
+        final CorpusGenerator generator = new CorpusGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), args.length > 4 ? Long.parseLong(args[4]) : 1L);
+        final Path config = generator.generate(Path.of(args[0]));
+        System.out.println("Wrote " + generator.getFileCount() + " classes; config in " + config);
+    }
+
+    public int getFileCount() {
+        return this.modules * this.packages * this.classes;
+    }
+
+    /**
+     * Write the corpus under `root`/in and a config which translates it to `root`/out.
+     * @param root directory to generate into
+     * @return path of the config
+     * @throws IOException
+     */
+    public Path generate(final Path root) throws IOException {
+        for (int m = 0; m < this.modules; ++m) {
+            for (int p = 0; p < this.packages; ++p) {
+                final Path packageDir = root.resolve("in").resolve(getModuleName(m)).resolve(SRC_ROOT).resolve(getPackageName(m, p).replace('.', '/'));
+                Files.createDirectories(packageDir);
+                for (int c = 0; c < this.classes; ++c) {
+                    Files.writeString(packageDir.resolve(getClassName(m, p, c) + ".java"), javaClass(m, p, c));
+                }
+            }
+        }
+        final Path configPath = root.resolve(CONFIG_FILE);
+        Files.writeString(configPath, config(root));
+        return configPath;
+    }
+
+    protected String config(final Path root) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("inputDirectory: ").append(root.resolve("in").toAbsolutePath()).append('\n')
+                .append("outputDirectory: ").append(root.resolve("out").toAbsolutePath()).append('\n')
+                .append("packageTemplate: \"// Corresponding generated package: %s\"\n")
+                .append("indentation: 2\n")
+                .append("unknownImportTemplate: \"import { %s } from %s;\"\n")
+                .append("commentThrows: true\n")
+                .append("unknownAnnotations: comment\n\n")
+                .append("moduleMaps:\n");
+        for (int m = 0; m < this.modules; ++m) {
+            sb.append("  ").append(getModuleName(m)).append(":\n")
+                    .append("    srcRoot: ").append(SRC_ROOT).append('\n')
+                    .append("    outputPath: packages/").append(getModuleName(m)).append("/src\n")
+                    .append("    tsModule: '@").append(getModuleName(m)).append("'\n")
+                    .append("    packageMaps:\n")
+                    .append("      - pkg: ").append(BASE_PACKAGE).append(".m").append(m).append('\n')
+                    .append("        destPath:\n");
+        }
+        return sb.toString();
+    }
+
+    static String getModuleName(final int m) {
+        return "module" + m;
+    }
+
+    static String getPackageName(final int m, final int p) {
+        return BASE_PACKAGE + ".m" + m + ".p" + p;
+    }
+
+    static String getClassName(final int m, final int p, final int c) {
+        return "M" + m + "P" + p + "C" + c;
+    }
+
+    protected String javaClass(final int m, final int p, final int c) {
+        final String name = getClassName(m, p, c);
+        // a sibling in this package, a class in another package of this module, and one in another module
+        final String sibling = getClassName(m, p, (c + 1) % this.classes);
+        final int otherP = (p + 1) % this.packages;
+        final String otherPackageClass = getClassName(m, otherP, this.random.nextInt(this.classes));
+        final int otherM = (m + 1) % this.modules;
+        final int otherMP = this.random.nextInt(this.packages);
+        final String otherModuleClass = getClassName(otherM, otherMP, this.random.nextInt(this.classes));
+        // mostly small classes with a few big ones
+        final int extraMethods = this.random.nextInt(10) == 0 ? 20 + this.random.nextInt(80) : this.random.nextInt(5);
+
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(getPackageName(m, p)).append(";\n\n")
+                .append("import lombok.AllArgsConstructor;\n")
+                .append("import lombok.Getter;\n")
+                .append("import lombok.Setter;\n")
+                .append("import java.io.FileInputStream;\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.io.InputStream;\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Optional;\n");
+        if (otherP != p) {
+            sb.append("import ").append(getPackageName(m, otherP)).append('.').append(otherPackageClass).append(";\n");
+        }
+        if (otherM != m) {
+            sb.append("import ").append(getPackageName(otherM, otherMP)).append('.').append(otherModuleClass).append(";\n");
+        }
+        sb.append("\n/**\n * Generated class ").append(name).append(".\n */\n")
+                .append("@Getter\n@Setter\n@AllArgsConstructor\n")
+                .append("public class ").append(name).append(" {\n")
+                .append("    // identity\n")
+                .append("    private String name;\n")
+                .append("    private int size;\n")
+                .append("    private List<String> tags;\n")
+                .append("    private HashMap<String, Integer> counts;\n")
+                .append("    private Optional<").append(sibling).append("> next;\n");
+        if (otherP != p) {
+            sb.append("    private ").append(otherPackageClass).append(" related;\n");
+        }
+        if (otherM != m) {
+            sb.append("    private Optional<").append(otherModuleClass).append("> remote;\n");
+        }
+        sb.append('\n')
+                .append("    /**\n     * Describe this with a prefix.\n     */\n")
+                .append("    public Optional<String> describe(String prefix) {\n")
+                .append("        if (prefix.equals(name)) {\n")
+                .append("            return Optional.empty();\n")
+                .append("        }\n")
+                .append("        List<String> out = new ArrayList<>();\n")
+                .append("        for (String tag : tags) {\n")
+                .append("            out.add(prefix + tag);\n")
+                .append("        }\n")
+                .append("        return Optional.of(String.join(\",\", out));\n")
+                .append("    }\n\n")
+                .append("    public int load(String path) throws IOException {\n")
+                .append("        try {\n")
+                .append("            InputStream in = new FileInputStream(path);\n")
+                .append("            System.out.println(\"loaded \" + path);\n")
+                .append("            return size;\n")
+                .append("        } catch (IOException e) {\n")
+                .append("            System.err.println(e);\n")
+                .append("            return -1;\n")
+                .append("        }\n")
+                .append("    }\n");
+        for (int i = 0; i < extraMethods; ++i) {
+            sb.append('\n')
+                    .append("    // count ").append(i).append('\n')
+                    .append("    public int count").append(i).append("(String key, int start) {\n")
+                    .append("        Integer found = counts.get(key);\n")
+                    .append("        if (found == null) {\n")
+                    .append("            counts.put(key, start + ").append(i).append(");\n")
+                    .append("            return start;\n")
+                    .append("        }\n")
+                    .append("        return found + size;\n")
+                    .append("    }\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package org.javatots.benchmarks;
+
+import org.javatots.config.JtsConfig;
+import org.javatots.config.ModuleMap;
+import org.javatots.config.PackageMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A temp directory laid out like a javatots input with one small, medium and huge class, plus a config for it.
+ */
+public class Fixture {
+    public static final String MODULE = "bench";
+    public static final String OTHER_MODULE = "other";
+    public static final String PACKAGE = "org.javatots.bench";
+    public static final String SRC_ROOT = "src/main/java";
+    // number of field/method groups in each class
+    public static final Map<String, Integer> SIZES = Map.of("small", 5, "medium", 50, "huge", 500);
+
+    public final Path root;
+    public final JtsConfig config;
+    public final Path srcRootPath;
+
+    protected Fixture(final Path root) throws IOException {
+        this.root = root;
+        this.srcRootPath = root.resolve("in").resolve(MODULE).resolve(SRC_ROOT);
+        final Path packageDir = this.srcRootPath.resolve(PACKAGE.replace('.', '/'));
+        Files.createDirectories(packageDir);
+        for (String size : SIZES.keySet()) {
+            Files.writeString(packageDir.resolve(getClassName(size) + ".java"), javaClass(PACKAGE, getClassName(size), SIZES.get(size)));
+        }
+        this.config = makeConfig(root);
+    }
+
+    public static Fixture create() throws IOException {
+        return new Fixture(Files.createTempDirectory("javatots-bench"));
+    }
+
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(this.root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    public static String getClassName(final String size) {
+        return Character.toUpperCase(size.charAt(0)) + size.substring(1) + "Class";
+    }
+
+    public Path getSourceFile(final String size) {
+        return this.srcRootPath.resolve(PACKAGE.replace('.', '/')).resolve(getClassName(size) + ".java");
+    }
+
+    public Set<String> getSiblings(final String size) {
+        final Set<String> siblings = new HashSet<>();
+        for (String other : SIZES.keySet()) {
+            if (!other.equals(size)) {
+                siblings.add(getClassName(other));
+            }
+        }
+        return siblings;
+    }
+
+    public ModuleMap getModuleMap() {
+        return this.config.moduleMaps.get(MODULE);
+    }
+
+    public PackageMap getPackageMap() {
+        return getModuleMap().packageMaps.get(0);
+    }
+
+    protected static JtsConfig makeConfig(final Path root) {
+        final JtsConfig config = new JtsConfig();
+        config.inputDirectory = String.valueOf(root.resolve("in"));
+        config.outputDirectory = String.valueOf(root.resolve("out"));
+        config.packageTemplate = "// Corresponding package: %s";
+        config.commentThrows = true;
+        config.unknownAnnotations = "comment";
+        config.moduleMaps = new LinkedHashMap<>();
+        config.moduleMaps.put(MODULE, makeModuleMap("src", "@bench", PACKAGE));
+        config.moduleMaps.put(OTHER_MODULE, makeModuleMap("other/src", "@other", "org.javatots.other"));
+        return config;
+    }
+
+    protected static ModuleMap makeModuleMap(final String outputPath, final String tsModule, final String pkg) {
+        final ModuleMap moduleMap = new ModuleMap();
+        moduleMap.srcRoot = SRC_ROOT;
+        moduleMap.outputPath = outputPath;
+        moduleMap.tsModule = tsModule;
+        final PackageMap packageMap = new PackageMap();
+        packageMap.pkg = pkg;
+        moduleMap.packageMaps = new ArrayList<>(List.of(packageMap));
+        return moduleMap;
+    }
+
+    /**
+     * Generate a class which exercises every pre-processor.
+     * @param pkg package name
+     * @param name class name
+     * @param groups number of field/method groups
+     * @return Java source
+     */
+    public static String javaClass(final String pkg, final String name, final int groups) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(pkg).append(";\n\n")
+                .append("import lombok.Getter;\n")
+                .append("import lombok.Setter;\n")
+                .append("import lombok.extern.slf4j.Slf4j;\n")
+                .append("import java.io.FileInputStream;\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.io.InputStream;\n")
+                .append("import java.io.StringWriter;\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Optional;\n")
+                .append("import org.javatots.other.Helper;\n\n")
+                .append("/**\n * Generated class with ").append(groups).append(" groups.\n */\n")
+                .append("@Slf4j\n@Getter\n@Setter\n")
+                .append("public class ").append(name).append(" {\n");
+        for (int i = 0; i < groups; ++i) {
+            sb.append("    // fields ").append(i).append('\n')
+                    .append("    private String name").append(i).append(";\n")
+                    .append("    private List<Integer> values").append(i).append(" = new ArrayList<>();\n")
+                    .append("    private HashMap<String, Optional<String>> labels").append(i).append(";\n")
+                    .append("    int count").append(i).append(";\n\n")
+                    .append("    /** compute ").append(i).append(" */\n")
+                    .append("    public int compute").append(i).append("(int x, String s) throws IOException {\n")
+                    .append("        // body\n")
+                    .append("        if (s.equals(name").append(i).append(")) {\n")
+                    .append("            System.out.println(s);\n")
+                    .append("        }\n")
+                    .append("        for (Integer v : values").append(i).append(") {\n")
+                    .append("            x = x + v;\n")
+                    .append("        }\n")
+                    .append("        try {\n")
+                    .append("            InputStream in = new FileInputStream(s);\n")
+                    .append("            StringWriter w = new StringWriter();\n")
+                    .append("        } catch (IOException e) {\n")
+                    .append("            System.err.println(e);\n")
+                    .append("        }\n")
+                    .append("        Optional<Helper> helper = Optional.empty();\n")
+                    .append("        return x + count").append(i).append(";\n")
+                    .append("    }\n\n");
+        }
+        sb.append("    // end\n}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package org.javatots.benchmarks;
+
+import org.javatots.config.JtsConfig;
+import org.javatots.config.ModuleMap;
+import org.javatots.config.PackageResolver;
+import org.javatots.main.JavaToTypescript;
+import org.javatots.main.TypescriptImport;
+import org.javatots.main.TypescriptModuleImport;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import resolution and printing Typescript imports.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportResolutionBenchmark {
+    JtsConfig config;
+    ModuleMap fromModuleMap;
+    PackageResolver resolver;
+    TypescriptImport fsImport;
+
+    @Setup
+    public void setUp() {
+        this.config = Fixture.makeConfig(Path.of("."));
+        this.fromModuleMap = this.config.moduleMaps.get(Fixture.MODULE);
+        this.resolver = this.config.getPackageResolver();
+        this.fsImport = JavaToTypescript.fisImports[0];
+    }
+
+    @Benchmark
+    public Optional<String> mappedNameSameModule() {
+        return this.config.getMappedNameForPackage(Fixture.PACKAGE + ".sub.Thing", this.fromModuleMap, Fixture.PACKAGE);
+    }
+
+    @Benchmark
+    public Optional<String> mappedNameOtherModule() {
+        return this.config.getMappedNameForPackage("org.javatots.other.Helper", this.fromModuleMap, Fixture.PACKAGE);
+    }
+
+    @Benchmark
+    public Optional<String> mappedNameUnknown() {
+        return this.config.getMappedNameForPackage("com.example.Unknown", this.fromModuleMap, Fixture.PACKAGE);
+    }
+
+    // The config caches what it resolves, so after the first call the above are cache hits. These walk the trie every
+    // time, like mappedName* did before the cache.
+
+    @Benchmark
+    public Optional<String> mappedNameSameModuleUncached() {
+        return this.resolver.resolveUncached(Fixture.PACKAGE + ".sub.Thing", this.fromModuleMap, Fixture.PACKAGE);
+    }
+
+    @Benchmark
+    public Optional<String> mappedNameOtherModuleUncached() {
+        return this.resolver.resolveUncached("org.javatots.other.Helper", this.fromModuleMap, Fixture.PACKAGE);
+    }
+
+    @Benchmark
+    public Optional<String> mappedNameUnknownUncached() {
+        return this.resolver.resolveUncached("com.example.Unknown", this.fromModuleMap, Fixture.PACKAGE);
+    }
+
+    @Benchmark
+    public String printNamedImport() {
+        return TypescriptModuleImport.named("../../up/Thing", "Thing").toString();
+    }
+
+    @Benchmark
+    public String printHandlerImport() {
+        return this.fsImport.toModuleImport().toString();
+    }
+}
@@ -0,0 +1,42 @@
+package org.javatots.benchmarks;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.configuration.PrinterConfiguration;
+import org.javatots.main.JavaToTypescript;
+import org.javatots.main.TypescriptPrettyPrinter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TypescriptPrettyPrinter on small, medium and huge classes. Printing doesn't modify the AST so it's parsed once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrettyPrinterBenchmark {
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    CompilationUnit cu;
+    PrinterConfiguration configuration;
+
+    @Setup
+    public void setUp() {
+        final String source = Fixture.javaClass(Fixture.PACKAGE, Fixture.getClassName(this.size), Fixture.SIZES.get(this.size));
+        this.cu = new JavaParser().parse(source).getResult().get();
+        this.configuration = new JavaToTypescript(Fixture.makeConfig(java.nio.file.Path.of("."))).getPrinterConfiguration();
+    }
+
+    @Benchmark
+    public String print() {
+        final TypescriptPrettyPrinter prettyPrinter = new TypescriptPrettyPrinter(this.configuration, this.cu.getPackageDeclaration());
+        prettyPrinter.setOnMethodAnnotations((printer, annotations) -> {});
+        prettyPrinter.visit(this.cu, null);
+        return prettyPrinter.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package org.javatots.benchmarks;
+
+import com.github.javaparser.utils.SourceRoot;
+import org.javatots.config.JtsConfig;
+import org.javatots.main.JavaToTypescript;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Run walkModules on generated corpora of increasing size and report wall time and peak heap.
+ * Usage: ScaleTest [--sizes 100,1000,10000] [--threads N] [--bounded-memory] [--stream] [--csv results.csv] [--keep]
+ * Peak heap is the sum of the heap pools' peaks, so it's an upper bound.
+ */
+public class ScaleTest {
+    static final int MODULES = 2;
+    static final int PACKAGES = 5;
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> sizes = List.of(100, 1000, 10000);
+        int threads = 1;
+        boolean boundedMemory = false;
+        boolean streamOutput = false;
+        Path csv = null;
+        boolean keep = false;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = new ArrayList<>();
+                    for (String size : args[++i].split(",")) {
+                        sizes.add(Integer.parseInt(size));
+                    }
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--bounded-memory":
+                    boundedMemory = true;
+                    break;
+                case "--stream":
+                    streamOutput = true;
+                    break;
+                case "--csv":
+                    csv = Path.of(args[++i]);
+                    break;
+                case "--keep":
+                    keep = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+
+        System.out.println(String.format("%8s %12s %12s %14s", "files", "wall ms", "files/s", "peak heap MB"));
+        for (int size : sizes) {
+            final CorpusGenerator generator = new CorpusGenerator(MODULES, PACKAGES, Math.max(1, size / (MODULES * PACKAGES)), size);
+            final Path root = Files.createTempDirectory("javatots-scale");
+            final JtsConfig config = JavaToTypescript.loadConfig(String.valueOf(generator.generate(root)));
+            config.threads = threads;
+            config.boundedMemory = boundedMemory;
+            config.streamOutput = streamOutput;
+
+            System.gc();
+            resetPeakHeap();
+            final long start = System.nanoTime();
+            new JavaToTypescript(config).walkModules(new SourceRoot(Path.of(config.inputDirectory)));
+            final long wallMs = (System.nanoTime() - start) / 1_000_000;
+            final long peakHeapMb = getPeakHeap() / (1024 * 1024);
+
+            final int files = generator.getFileCount();
+            final long filesPerSecond = wallMs == 0 ? files : files * 1000L / wallMs;
+            System.out.println(String.format("%8d %12d %12d %14d", files, wallMs, filesPerSecond, peakHeapMb));
+            if (csv != null) {
+                final boolean header = !Files.exists(csv);
+                try (Writer writer = Files.newBufferedWriter(csv, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    if (header) {
+                        writer.write("files,threads,boundedMemory,streamOutput,wallMs,peakHeapMb\n");
+                    }
+                    writer.write(files + "," + threads + "," + boundedMemory + "," + streamOutput + "," + wallMs + "," + peakHeapMb + "\n");
+                }
+            }
+            if (keep) {
+                System.out.println("  corpus kept in " + root);
+            } else {
+                deleteRecursively(root);
+            }
+        }
+    }
+
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    static void deleteRecursively(final Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.javatots.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Launch the shaded translator jar repeatedly with and without a CDS archive and report time to the first file
+ * ("-- " log line) and total wall time.
+ * Usage: StartupTest [--jar javatots-shaded.jar] [--archive javatots.jsa] [--config config.yaml] [--runs N]
+ * Without --config a 10-class corpus is generated. Make the jar and archive with `mvn -P cds package` in javatots.
+ */
+public class StartupTest {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path jar = Path.of("../javatots/target/javatots-1.0-SNAPSHOT-shaded.jar");
+        Path archive = Path.of("../javatots/target/javatots.jsa");
+        Path config = null;
+        int runs = 10;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--jar":
+                    jar = Path.of(args[++i]);
+                    break;
+                case "--archive":
+                    archive = Path.of(args[++i]);
+                    break;
+                case "--config":
+                    config = Path.of(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        if (!Files.isRegularFile(jar) || !Files.isRegularFile(archive)) {
+            throw new IllegalArgumentException("need " + jar + " and " + archive + "; run mvn -P cds package in javatots");
+        }
+        Path root = null;
+        if (config == null) {
+            root = Files.createTempDirectory("javatots-startup");
+            config = new CorpusGenerator(1, 2, 5, 1L).generate(root);
+        }
+
+        System.out.println(String.format("%-12s %18s %18s", "", "first file ms", "wall ms"));
+        System.out.println(String.format("%-12s %8s %9s %8s %9s", "", "median", "min", "median", "min"));
+        for (boolean withArchive : new boolean[] {false, true}) {
+            final List<Long> firstFile = new ArrayList<>();
+            final List<Long> wall = new ArrayList<>();
+            for (int run = 0; run < runs; ++run) {
+                final List<String> command = new ArrayList<>(List.of("java"));
+                if (withArchive) {
+                    command.add("-XX:SharedArchiveFile=" + archive);
+                }
+                command.addAll(List.of("-jar", String.valueOf(jar), String.valueOf(config)));
+                final long[] times = time(command);
+                firstFile.add(times[0]);
+                wall.add(times[1]);
+            }
+            Collections.sort(firstFile);
+            Collections.sort(wall);
+            System.out.println(String.format("%-12s %8d %9d %8d %9d", withArchive ? "CDS archive" : "default",
+                    firstFile.get(runs / 2), firstFile.get(0), wall.get(runs / 2), wall.get(0)));
+        }
+        if (root != null) {
+            ScaleTest.deleteRecursively(root);
+        }
+    }
+
+    /**
+     * @return milliseconds to the first translated file and to exit
+     */
+    static long[] time(final List<String> command) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long firstFile = -1;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (firstFile == -1 && line.startsWith("-- ")) {
+                    firstFile = (System.nanoTime() - start) / 1_000_000;
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(command + " exited with " + process.exitValue());
+        }
+        return new long[] {firstFile, (System.nanoTime() - start) / 1_000_000};
+    }
+}
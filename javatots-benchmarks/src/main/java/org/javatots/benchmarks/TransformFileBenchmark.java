@@ -0,0 +1,50 @@
+package org.javatots.benchmarks;
+
+import com.github.javaparser.utils.SourceRoot;
+import org.javatots.main.JavaToTypescript;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-file translation: parse, import processing, pre-processors and printing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransformFileBenchmark {
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    Fixture fixture;
+    JavaToTypescript translator;
+    SourceRoot sourceRoot;
+    String sourceFileName;
+    Set<String> siblings;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.fixture = Fixture.create();
+        this.fixture.config.boundedMemory = true; // parse every time rather than re-transforming a cached AST
+        this.translator = new JavaToTypescript(this.fixture.config);
+        this.sourceRoot = new SourceRoot(Path.of(this.fixture.config.inputDirectory));
+        this.sourceFileName = String.valueOf(this.fixture.getSourceFile(this.size));
+        this.siblings = this.fixture.getSiblings(this.size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.fixture.delete();
+    }
+
+    @Benchmark
+    public String transformFile() {
+        return this.translator.transformFile(this.sourceRoot, this.sourceFileName, this.siblings, this.fixture.getModuleMap(), this.fixture.getPackageMap());
+    }
+}
@@ -0,0 +1,72 @@
+package org.javatots.benchmarks;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.visitor.ModifierVisitor;
+import org.javatots.transformers.FusedRewriteVisitor;
+import org.javatots.transformers.NodeRewriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each pre-processor in org.javatots.transformers on its own, plus all of them fused into one traversal.
+ * Every invocation gets a freshly parsed AST because the visitors modify it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisitorBenchmark {
+    static final String[] VISITORS = {
+            "JavaCoreTypesVisitor",
+            "LombokSlf4jVisitor",
+            "DelombokVisitor",
+            "JavaListToArrayVisitor",
+            "JavaUtilOptionalVisitor",
+            "JavaFileInputStreamVisitor",
+            "JavaStringWriterVisitor"
+    };
+
+    @Param({"JavaCoreTypesVisitor", "LombokSlf4jVisitor", "DelombokVisitor", "JavaListToArrayVisitor", "JavaUtilOptionalVisitor", "JavaFileInputStreamVisitor", "JavaStringWriterVisitor", "fused"})
+    public String visitor;
+
+    @Param({"medium", "huge"})
+    public String size;
+
+    String source;
+    CompilationUnit cu;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        this.source = Fixture.javaClass(Fixture.PACKAGE, Fixture.getClassName(this.size), Fixture.SIZES.get(this.size));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        this.cu = new JavaParser().parse(this.source).getResult().get();
+    }
+
+    @Benchmark
+    public CompilationUnit visit() throws ReflectiveOperationException {
+        if (this.visitor.equals("fused")) {
+            final List<NodeRewriter> rewriters = new ArrayList<>();
+            for (String name : VISITORS) {
+                rewriters.add((NodeRewriter) newVisitor(name));
+            }
+            new FusedRewriteVisitor(rewriters).rewrite(this.cu);
+        } else {
+            newVisitor(this.visitor).visit(this.cu, null);
+        }
+        return this.cu;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ModifierVisitor<Void> newVisitor(final String name) throws ReflectiveOperationException {
+        return (ModifierVisitor<Void>) Class.forName("org.javatots.transformers." + name).getDeclaredConstructor().newInstance();
+    }
+}
@@ -0,0 +1,17 @@
+package org.javatots.sample.app;
+
+import org.javatots.sample.db.AccountDb;
+import org.javatots.sample.db.models.Account;
+
+import java.io.IOException;
+import java.util.List;
+
+public class App {
+    public static void main(String[] args) throws IOException {
+        AccountDb db = new AccountDb(args[0]);
+        List<String> ids = List.of(args).subList(1, args.length);
+        for (String id : ids) {
+            System.out.println(db.find(id).map(Account::getBalance).orElse(0L));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.javatots.sample.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.javatots.sample.db.models.Account;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Load accounts from a file.
+ */
+@Slf4j
+public class AccountDb {
+    private final List<Account> accounts = new ArrayList<>();
+
+    public AccountDb(String path) throws IOException {
+        try {
+            InputStream in = new FileInputStream(path);
+            log.info("Reading " + path);
+        } catch (IOException e) {
+            log.error("Can't read " + path);
+            throw e;
+        }
+    }
+
+    public Optional<Account> find(String id) {
+        for (Account account : this.accounts) {
+            if (account.getId().equals(id)) {
+                return Optional.of(account);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        writer.write(Dump.header());
+        switch (this.accounts.size()) {
+            case 0: writer.write("empty"); break;
+            default: writer.write(this.accounts.size() + " accounts");
+        }
+        return writer.toString();
+    }
+}
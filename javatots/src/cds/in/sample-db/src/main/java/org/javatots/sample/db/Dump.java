@@ -0,0 +1,8 @@
+package org.javatots.sample.db;
+
+public class Dump {
+    /* header for dumps */
+    public static String header() {
+        return "accounts: ";
+    }
+}
@@ -0,0 +1,27 @@
+package org.javatots.sample.db.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An account with some owners.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class Account {
+    private String id;
+    private long balance;
+    private List<Owner> owners;
+    private HashMap<String, Integer> limits;
+    private Optional<String> nickname;
+
+    public boolean isOverdrawn() {
+        return this.balance < 0; // no overdraft facility
+    }
+}
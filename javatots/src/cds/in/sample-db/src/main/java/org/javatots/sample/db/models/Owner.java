@@ -0,0 +1,11 @@
+package org.javatots.sample.db.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Owner {
+    private String name;
+    private int age;
+}
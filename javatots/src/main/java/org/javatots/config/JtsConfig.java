@@ -1,10 +1,12 @@
 package org.javatots.config;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.javatots.jfr.ResolveImportEvent;
 import org.javatots.main.JavaToTypescript;
+import org.javatots.main.TranslationReport;
 
-import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
 
@@ -22,6 +24,21 @@ public class JtsConfig {
     public String unknownImportTemplate;
     public boolean commentThrows;
     public String unknownAnnotations;
+    public int threads = 1; // number of files to translate at once; 0 means one per available processor
+    public boolean incremental; // skip files whose inputs are unchanged since the last run
+    public boolean streamOutput; // write output as it's printed rather than building each file in memory
+    public boolean boundedMemory; // parse outside the SourceRoot cache so each AST can be collected once it's written
+    public boolean pipeline; // overlap reading, transforming and writing in separate stages; see TranslationPipeline
+    public boolean declarationsOnly; // write .d.ts files with signatures only, dropping bodies right after parsing
+    public String shard; // i/N to translate only the i'th of N shares of the files; see Shards
+    public boolean dependencyGraph; // record which classes each file refers to, for --affected-by; see DependencyGraph
+    public boolean timings; // save how long each file took and start the slowest first next time; see WorkScheduler
+    public long watchDebounceMillis = 50; // in --watch mode, wait this long after the last change before retranslating
+    public String report; // if set, write per-phase timings for the run to this JSON file
+    public int reportTopFiles = TranslationReport.DEFAULT_TOP_FILES; // number of slowest files listed in the report
+
+    @Setter(AccessLevel.NONE)
+    private volatile PackageResolver packageResolver; // compiled from moduleMaps on first use
 
     @Override
     public String toString() {
@@ -31,24 +48,54 @@ public class JtsConfig {
                 '}';
     }
 
+    /**
+     * Resolve `threads` to a usable worker count.
+     * @return number of translation workers, at least 1
+     */
+    public int getWorkerCount() {
+        return this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Find the Typescript module for an imported class: a relative path within `fromModuleMap`, else the other module's tsModule.
+     * @return the Typescript module specifier, e.g. ../other/Thing or @module/pkg/Thing, or empty if no module maps the class's package
+     */
     public Optional<String> getMappedNameForPackage(final String qualifiedClassName, final ModuleMap fromModuleMap, final String fromPackage) {
-        for (ModuleMap m: this.moduleMaps.values()) {
-            Optional<String> optName = m.getMapppedNameForPackageName(qualifiedClassName);
-            if (!optName.isEmpty()) {
-                final String packageNameString = optName.get();
-                if (m == fromModuleMap) {
-                    // compute a relative path
-                    Path from = Path.of(fromPackage.replaceAll("\\.", "/"));
-                    Path to = Path.of(qualifiedClassName.replaceAll("\\.", "/"));
-                    String rel = String.valueOf(from.relativize(to));
-                    final String rel1 = rel.startsWith(".") ? rel : "./" + rel;
-                    return Optional.of(JavaToTypescript.javaImportify(rel1));
-                } else {
-                    // use the tsModule to reference it
-                    return Optional.of(JavaToTypescript.javaImportify((m.tsModule + "." + packageNameString)));
+        final ResolveImportEvent event = new ResolveImportEvent();
+        event.begin();
+        Optional<String> mappedName = null;
+        try {
+            mappedName = this.resolveMappedNameForPackage(qualifiedClassName, fromModuleMap, fromPackage);
+            return mappedName;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.qualifiedClassName = qualifiedClassName;
+                event.fromPackage = fromPackage;
+                event.mappedName = mappedName == null ? null : mappedName.orElse(null);
+                event.outcome = mappedName == null ? "failed" : mappedName.isPresent() ? "mapped" : "unmapped";
+                event.commit();
+            }
+        }
+    }
+
+    protected Optional<String> resolveMappedNameForPackage(final String qualifiedClassName, final ModuleMap fromModuleMap, final String fromPackage) {
+        return this.getPackageResolver().resolve(qualifiedClassName, fromModuleMap, fromPackage);
+    }
+
+    /**
+     * Compile moduleMaps into a PackageResolver the first time it's needed.
+     */
+    public PackageResolver getPackageResolver() {
+        PackageResolver resolver = this.packageResolver;
+        if (resolver == null) {
+            synchronized (this) {
+                resolver = this.packageResolver;
+                if (resolver == null) {
+                    resolver = this.packageResolver = new PackageResolver(this.moduleMaps.values());
                 }
             }
         }
-        return Optional.empty();
+        return resolver;
     }
 }
@@ -10,14 +10,20 @@ import java.util.Optional;
  */
 public class PackageMap {
     public String pkg;
-    public Optional<String> path = Optional.empty();
+    public volatile Optional<String> path = Optional.empty(); // pkg as a path, computed on first use
     public String destPath;
 
+    /**
+     * Safe to call from several threads: at worst each computes the same path.
+     */
     public String getPkgPath() {
-        if (this.path.isEmpty()) {
-            this.path = Optional.of(this.pkg.replaceAll("\\.", "/"));
+        final Optional<String> path = this.path;
+        if (path.isPresent()) {
+            return path.get();
         }
-        return this.path.get();
+        final String pkgPath = this.pkg.replace('.', '/');
+        this.path = Optional.of(pkgPath);
+        return pkgPath;
     }
 
     @Override
@@ -0,0 +1,129 @@
+package org.javatots.config;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The config's packageMaps compiled into a trie of package paths, plus a cache of resolved imports.
+ * A packageMap matches a class whose path starts with the packageMap's path, character by character, like
+ * ModuleMap.getMapppedNameForPackageName; when more than one matches, the first in config order (module, then
+ * packageMap) wins, as it always has.
+ * Built from a snapshot of the config; changing moduleMaps afterwards isn't seen.
+ */
+public class PackageResolver {
+    static class Match {
+        final ModuleMap moduleMap;
+        final PackageMap packageMap;
+        final int order;
+
+        Match(final ModuleMap moduleMap, final PackageMap packageMap, final int order) {
+            this.moduleMap = moduleMap;
+            this.packageMap = packageMap;
+            this.order = order;
+        }
+    }
+
+    static class TrieNode {
+        final Map<Character, TrieNode> children = new HashMap<>();
+        Match match;
+    }
+
+    static class CacheKey {
+        final ModuleMap fromModuleMap;
+        final String fromPackage;
+        final String qualifiedClassName;
+
+        CacheKey(final ModuleMap fromModuleMap, final String fromPackage, final String qualifiedClassName) {
+            this.fromModuleMap = fromModuleMap;
+            this.fromPackage = fromPackage;
+            this.qualifiedClassName = qualifiedClassName;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey that = (CacheKey) o;
+            return this.fromModuleMap == that.fromModuleMap
+                    && Objects.equals(this.fromPackage, that.fromPackage)
+                    && this.qualifiedClassName.equals(that.qualifiedClassName);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(this.fromModuleMap) * 31 + Objects.hashCode(this.fromPackage)) * 31 + this.qualifiedClassName.hashCode();
+        }
+    }
+
+    final TrieNode root = new TrieNode();
+    final Map<CacheKey, Optional<String>> resolved = new ConcurrentHashMap<>();
+
+    public PackageResolver(final Collection<ModuleMap> moduleMaps) {
+        int order = 0;
+        for (ModuleMap moduleMap : moduleMaps) {
+            for (PackageMap packageMap : moduleMap.packageMaps) {
+                TrieNode node = this.root;
+                final String pkgPath = packageMap.getPkgPath();
+                for (int i = 0; i < pkgPath.length(); ++i) {
+                    node = node.children.computeIfAbsent(pkgPath.charAt(i), c -> new TrieNode());
+                }
+                if (node.match == null) {
+                    node.match = new Match(moduleMap, packageMap, order);
+                }
+                ++order;
+            }
+        }
+    }
+
+    /**
+     * See JtsConfig.getMappedNameForPackage.
+     */
+    public Optional<String> resolve(final String qualifiedClassName, final ModuleMap fromModuleMap, final String fromPackage) {
+        return this.resolved.computeIfAbsent(new CacheKey(fromModuleMap, fromPackage, qualifiedClassName),
+                key -> this.resolveUncached(qualifiedClassName, fromModuleMap, fromPackage));
+    }
+
+    /**
+     * Like resolve but always walks the trie, e.g. to benchmark it.
+     */
+    public Optional<String> resolveUncached(final String qualifiedClassName, final ModuleMap fromModuleMap, final String fromPackage) {
+        final Match match = this.find(qualifiedClassName);
+        if (match == null) {
+            return Optional.empty();
+        }
+        if (match.moduleMap == fromModuleMap) {
+            // compute a relative path
+            Path from = Path.of(fromPackage.replace('.', '/'));
+            Path to = Path.of(qualifiedClassName.replace('.', '/'));
+            String rel = String.valueOf(from.relativize(to));
+            final String rel1 = rel.startsWith(".") ? rel : "./" + rel;
+            return Optional.of(rel1);
+        } else {
+            // use the tsModule to reference it
+            final String packageNameString = match.packageMap.getPackageName(qualifiedClassName);
+            return Optional.of(match.moduleMap.tsModule + '/' + packageNameString.replace('.', '/'));
+        }
+    }
+
+    /**
+     * Walk the trie along `qualifiedClassName` as a path.
+     * @return the earliest configured packageMap whose path is a prefix of the class's, or null
+     */
+    Match find(final String qualifiedClassName) {
+        TrieNode node = this.root;
+        Match best = node.match;
+        for (int i = 0; i < qualifiedClassName.length(); ++i) {
+            final char c = qualifiedClassName.charAt(i);
+            node = node.children.get(c == '.' ? '/' : c);
+            if (node == null) {
+                break;
+            }
+            if (node.match != null && (best == null || node.match.order < best.order)) {
+                best = node.match;
+            }
+        }
+        return best;
+    }
+}
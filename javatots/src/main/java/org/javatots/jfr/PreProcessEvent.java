@@ -0,0 +1,30 @@
+package org.javatots.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One pre-processor pass over a file's AST. Fused NodeRewriters share a pass.
+ */
+@Name("org.javatots.PreProcess")
+@Label("Pre-process")
+@Category("javatots")
+@Description("A pre-processor pass over one file's AST")
+public class PreProcessEvent extends Event {
+    @Label("Java File")
+    public String javaFile;
+
+    @Label("Pre-processor")
+    public String preProcessor;
+
+    @Label("AST Nodes")
+    @Description("Nodes in the AST after the pass")
+    public long nodeCount;
+
+    @Label("Outcome")
+    @Description("done or failed")
+    public String outcome;
+}
@@ -0,0 +1,29 @@
+package org.javatots.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Mapping an imported Java class to a Typescript module with JtsConfig.getMappedNameForPackage.
+ */
+@Name("org.javatots.ResolveImport")
+@Label("Resolve Import")
+@Category("javatots")
+@Description("Map an imported class to a Typescript module")
+public class ResolveImportEvent extends Event {
+    @Label("Imported Class")
+    public String qualifiedClassName;
+
+    @Label("From Package")
+    public String fromPackage;
+
+    @Label("Mapped Name")
+    public String mappedName;
+
+    @Label("Outcome")
+    @Description("mapped, unmapped or failed")
+    public String outcome;
+}
@@ -0,0 +1,29 @@
+package org.javatots.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Translation of one Java file, from parse to write.
+ */
+@Name("org.javatots.TranslateFile")
+@Label("Translate File")
+@Category("javatots")
+@Description("Parse, pre-process, print and write one Java file")
+public class TranslateFileEvent extends Event {
+    @Label("Java File")
+    public String javaFile;
+
+    @Label("Module")
+    public String module;
+
+    @Label("AST Nodes")
+    public long nodeCount;
+
+    @Label("Outcome")
+    @Description("written, unchanged or failed")
+    public String outcome;
+}
@@ -0,0 +1,28 @@
+package org.javatots.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Writing (or skipping) one output file.
+ */
+@Name("org.javatots.WriteOutput")
+@Label("Write Output")
+@Category("javatots")
+@Description("Compare and write one Typescript file")
+public class WriteOutputEvent extends Event {
+    @Label("Output File")
+    public String outputFile;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Outcome")
+    @Description("written, unchanged or failed")
+    public String outcome;
+}
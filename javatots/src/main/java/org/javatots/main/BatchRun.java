@@ -0,0 +1,117 @@
+package org.javatots.main;
+
+import com.github.javaparser.utils.Log;
+import com.github.javaparser.utils.SourceRoot;
+import org.javatots.config.JtsConfig;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Translate several configs in one JVM, one after another, so start-up and warm-up are paid once. The configs share
+ * a pool of `threads` workers (the most any of them asks for) and the import handler registry, and a file that several
+ * of them translate is parsed once; see SharedParseCache. Each config still writes its own output, manifest and report.
+ * A failing config doesn't stop the rest.
+ */
+public class BatchRun {
+    final List<Path> configPaths;
+    final Consumer<JtsConfig> overrides;
+
+    /**
+     * @param configPaths YAML configs, run in this order
+     * @param overrides command line settings to apply to each config
+     */
+    public BatchRun(final List<Path> configPaths, final Consumer<JtsConfig> overrides) {
+        this.configPaths = configPaths;
+        this.overrides = overrides;
+    }
+
+    /**
+     * Read a list of configs, e.g.
+     *   - config.yaml
+     *   - shapetrees-java.yaml
+     * @param batchFile YAML list of config paths, relative to the batch file's directory
+     * @return the config paths
+     */
+    public static List<Path> loadBatch(final Path batchFile) throws IOException {
+        final Object loaded;
+        try (InputStream inputStream = Files.newInputStream(batchFile)) {
+            loaded = new Yaml().load(inputStream);
+        }
+        if (!(loaded instanceof List)) {
+            throw new IllegalArgumentException(batchFile + " should be a list of config files");
+        }
+        final Path dir = batchFile.toAbsolutePath().getParent();
+        final List<Path> ret = new ArrayList<>();
+        for (Object configPath : (List<?>) loaded) {
+            ret.add(dir.resolve(String.valueOf(configPath)));
+        }
+        return ret;
+    }
+
+    public void run() throws IOException {
+        final long start = System.nanoTime();
+        final List<JavaToTypescript> translators = new ArrayList<>();
+        int workerCount = 1;
+        final Set<String> reports = new HashSet<>();
+        for (Path configPath : this.configPaths) {
+            Log.info("Reading YAML configuration from: " + configPath);
+            final JtsConfig config = JavaToTypescript.loadConfig(String.valueOf(configPath));
+            this.overrides.accept(config);
+            if (config.report != null && !reports.add(config.report)) {
+                // e.g. from --report; keep each config's report
+                config.report = JavaToTypescript.withSuffix(config.report, "-" + PackageIndex.getClassName(configPath));
+                reports.add(config.report);
+            }
+            translators.add(new JavaToTypescript(config));
+            workerCount = Math.max(workerCount, config.getWorkerCount());
+        }
+
+        // announce every config's files before any of them runs so the cache knows each file's last use
+        final SharedParseCache parseCache = new SharedParseCache();
+        for (JavaToTypescript translator : translators) {
+            translator.parseSession = parseCache.open(translator.findJobs().stream()
+                    .map(job -> translator.getParseKey(Path.of(job.sourceFileName)))
+                    .collect(Collectors.toList()));
+        }
+
+        final ExecutorService executor = workerCount > 1 ? Executors.newFixedThreadPool(workerCount) : null;
+        final List<Path> failed = new ArrayList<>();
+        Exception firstFailure = null;
+        try {
+            for (int i = 0; i < translators.size(); ++i) {
+                final JavaToTypescript translator = translators.get(i);
+                translator.executor = executor;
+                Log.info("Batch: translating " + this.configPaths.get(i));
+                try {
+                    translator.walkModules(new SourceRoot(Path.of(translator.config.inputDirectory)));
+                } catch (IOException | RuntimeException e) {
+                    Log.error(e, "Batch: " + this.configPaths.get(i) + " failed");
+                    failed.add(this.configPaths.get(i));
+                    firstFailure = firstFailure == null ? e : firstFailure;
+                } finally {
+                    translator.parseSession.close();
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        Log.info("Batch: " + translators.size() + " configs, " + parseCache + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+        if (firstFailure != null) {
+            throw new IllegalStateException(failed.size() + " of " + translators.size() + " configs failed: " + failed, firstFailure);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.javatots.main;
+
+/**
+ * Blank the insides of method and constructor bodies in Java source text so JavaParser doesn't build (or even
+ * tokenize much of) the statements of a file translated for declarations only.
+ * Any block following `)`, or `) throws A, B`, is emptied; at member level that's only method and constructor bodies.
+ * Blocks inside field initializers may be emptied as well, which is fine since those are dropped too.
+ * Newlines are kept so line numbers in parse errors still match the file. Unbalanced braces are left for the parser
+ * to report.
+ */
+public class BodySkipper {
+    public static String skipBodies(final String source) {
+        final StringBuilder out = new StringBuilder(source.length());
+        final int length = source.length();
+        boolean afterParen = false; // the last token was `)` or part of a following throws clause
+        boolean inThrows = false;
+        int i = 0;
+        while (i < length) {
+            final char c = source.charAt(i);
+            final int end = skipCommentOrLiteral(source, i);
+            if (end > i) {
+                // comments don't change afterParen; literals do
+                if (c == '"' || c == '\'') {
+                    afterParen = false;
+                    inThrows = false;
+                }
+                out.append(source, i, end);
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                out.append(c);
+                ++i;
+            } else if (c == ')') {
+                afterParen = true;
+                inThrows = false;
+                out.append(c);
+                ++i;
+            } else if (c == '{' && afterParen) {
+                final int close = findClose(source, i);
+                if (close < 0) {
+                    out.append(source, i, length);
+                    break;
+                }
+                out.append('{');
+                for (int j = i + 1; j < close; ++j) {
+                    final char b = source.charAt(j);
+                    if (b == '\n' || b == '\r') {
+                        out.append(b);
+                    }
+                }
+                out.append('}');
+                i = close + 1;
+                afterParen = false;
+                inThrows = false;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int j = i + 1;
+                while (j < length && Character.isJavaIdentifierPart(source.charAt(j))) {
+                    ++j;
+                }
+                if (afterParen && !inThrows && source.startsWith("throws", i) && j - i == 6) {
+                    inThrows = true;
+                } else if (!inThrows) {
+                    afterParen = false;
+                }
+                out.append(source, i, j);
+                i = j;
+            } else {
+                if (!(inThrows && (c == '.' || c == ',' || c == '<' || c == '>' || c == '@'))) {
+                    afterParen = false;
+                    inThrows = false;
+                }
+                out.append(c);
+                ++i;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param source Java source
+     * @param open index of a `{`
+     * @return index of the matching `}`, or -1
+     */
+    protected static int findClose(final String source, final int open) {
+        int depth = 0;
+        int i = open;
+        while (i < source.length()) {
+            final int end = skipCommentOrLiteral(source, i);
+            if (end > i) {
+                i = end;
+                continue;
+            }
+            final char c = source.charAt(i);
+            if (c == '{') {
+                ++depth;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+            ++i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index after the comment, string, text block or char literal starting at `i`, or `i` if there's none
+     */
+    protected static int skipCommentOrLiteral(final String source, final int i) {
+        final int length = source.length();
+        final char c = source.charAt(i);
+        if (c == '/' && i + 1 < length) {
+            if (source.charAt(i + 1) == '/') {
+                final int eol = source.indexOf('\n', i);
+                return eol < 0 ? length : eol;
+            }
+            if (source.charAt(i + 1) == '*') {
+                final int close = source.indexOf("*/", i + 2);
+                return close < 0 ? length : close + 2;
+            }
+            return i;
+        }
+        if (c == '"' && source.startsWith("\"\"\"", i)) {
+            int j = i + 3;
+            while (j < length && !source.startsWith("\"\"\"", j)) {
+                j += source.charAt(j) == '\\' ? 2 : 1;
+            }
+            return Math.min(j + 3, length);
+        }
+        if (c == '"' || c == '\'') {
+            int j = i + 1;
+            while (j < length && source.charAt(j) != c && source.charAt(j) != '\n') {
+                j += source.charAt(j) == '\\' ? 2 : 1;
+            }
+            return Math.min(j + 1, length);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,162 @@
+package org.javatots.main;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.utils.Log;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Which classes each translated file refers to, recorded during translation and kept in the outputDirectory between
+ * runs, so the files whose output depends on a given class can be found without translating anything.
+ * A file's output depends on a class when it imports it, refers to it as a package sibling (`./X` imports), or uses
+ * its simple name unresolved in the same package, in which case adding the class would add a `./X` import.
+ */
+public class DependencyGraph {
+    public static final String FILE_NAME = ".javatots-dependencies.yaml";
+
+    // Java path relative to inputDirectory -> what it refers to
+    public Map<String, Node> files = new TreeMap<>();
+
+    // qualified class name -> Java paths referring to it; built on first query
+    private TreeMap<String, Set<String>> dependents = null;
+
+    /**
+     * References of one translated file.
+     */
+    public static class Node {
+        public String className; // qualified name of the file's class
+        public List<String> references; // sorted qualified names
+
+        public Node() {
+        }
+
+        public Node(final String className, final List<String> references) {
+            this.className = className;
+            this.references = references;
+        }
+    }
+
+    /**
+     * Read the graph left by a previous run.
+     * @param outputDirectory where the graph lives
+     * @return the previous graph or an empty one if there was none or it couldn't be read.
+     */
+    public static DependencyGraph load(final String outputDirectory) {
+        final Path graphPath = Path.of(outputDirectory, FILE_NAME);
+        if (!Files.isRegularFile(graphPath)) {
+            return new DependencyGraph();
+        }
+        try (InputStream inputStream = Files.newInputStream(graphPath)) {
+            final DependencyGraph ret = new Yaml().loadAs(inputStream, DependencyGraph.class);
+            return ret == null ? new DependencyGraph() : ret;
+        } catch (IOException | RuntimeException e) {
+            Log.info("Ignoring unreadable dependency graph " + graphPath + ": " + e.getMessage());
+            return new DependencyGraph();
+        }
+    }
+
+    public static boolean exists(final String outputDirectory) {
+        return Files.isRegularFile(Path.of(outputDirectory, FILE_NAME));
+    }
+
+    public void save(final String outputDirectory) throws IOException {
+        this.save(outputDirectory, FILE_NAME);
+    }
+
+    /**
+     * @param fileName e.g. a shard's piece of the graph
+     */
+    public synchronized void save(final String outputDirectory, final String fileName) throws IOException {
+        final Path graphPath = Path.of(outputDirectory, fileName);
+        Files.createDirectories(graphPath.getParent());
+        try (Writer writer = Files.newBufferedWriter(graphPath)) {
+            new Yaml().dump(this, writer);
+        }
+    }
+
+    /**
+     * Combine the graphs of all shards of a run.
+     * @param partials each shard's graph
+     */
+    public static DependencyGraph merge(final List<Path> partials) throws IOException {
+        final DependencyGraph merged = new DependencyGraph();
+        for (Path partial : partials) {
+            try (InputStream inputStream = Files.newInputStream(partial)) {
+                merged.files.putAll(new Yaml().loadAs(inputStream, DependencyGraph.class).files);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Record a parsed file's references, replacing any from an earlier run. Call before imports are rewritten.
+     * @param javaFile path relative to inputDirectory
+     * @param cu the file as parsed
+     * @param referencedTypes simple names of all the types `cu` uses, e.g. from ClassListVistor
+     * @param referencedSiblings those of `referencedTypes` which are classes in the same package
+     */
+    public void record(final String javaFile, final CompilationUnit cu, final Set<String> referencedTypes, final Set<String> referencedSiblings) {
+        final String packageName = cu.getPackageDeclaration().map(p -> p.getNameAsString()).orElse("");
+        final Set<String> localNames = new HashSet<>(referencedSiblings);
+        final SortedSet<String> references = new TreeSet<>();
+        for (ImportDeclaration importDecl : cu.getImports()) {
+            if (!importDecl.isAsterisk() && !importDecl.isStatic()) {
+                references.add(importDecl.getNameAsString());
+                localNames.add(importDecl.getName().getIdentifier());
+            }
+        }
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            localNames.add(type.getNameAsString());
+        }
+        for (String type : referencedTypes) {
+            if (referencedSiblings.contains(type) || !localNames.contains(type)) {
+                references.add(qualify(packageName, type));
+            }
+        }
+        final Node node = new Node(qualify(packageName, PackageIndex.getClassName(Path.of(javaFile))), new ArrayList<>(references));
+        synchronized (this) {
+            this.files.put(javaFile, node);
+            this.dependents = null;
+        }
+    }
+
+    /**
+     * Forget files which no longer exist.
+     * @param javaFiles every file in the current configuration, relative to inputDirectory
+     */
+    public synchronized void retain(final Set<String> javaFiles) {
+        this.files.keySet().retainAll(javaFiles);
+        this.dependents = null;
+    }
+
+    /**
+     * @param className qualified class name
+     * @return the files whose output depends on `className` or its nested classes, sorted
+     */
+    public synchronized SortedSet<String> getDependents(final String className) {
+        if (this.dependents == null) {
+            this.dependents = new TreeMap<>();
+            for (Map.Entry<String, Node> entry : this.files.entrySet()) {
+                for (String reference : entry.getValue().references) {
+                    this.dependents.computeIfAbsent(reference, r -> new TreeSet<>()).add(entry.getKey());
+                }
+            }
+        }
+        final SortedSet<String> ret = new TreeSet<>(this.dependents.getOrDefault(className, Collections.emptySet()));
+        // nested classes sort between "C." and "C/"
+        this.dependents.subMap(className + '.', className + '/').values().forEach(ret::addAll);
+        return ret;
+    }
+
+    static String qualify(final String packageName, final String className) {
+        return packageName.isEmpty() ? className : packageName + '.' + className;
+    }
+}
@@ -0,0 +1,93 @@
+package org.javatots.main;
+
+import com.github.javaparser.utils.Log;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * How long each file took to translate the last time it was, kept in the outputDirectory between runs so WorkScheduler
+ * can start the slowest files first.
+ */
+public class FileTimings {
+    public static final String FILE_NAME = ".javatots-timings.yaml";
+
+    // Java path relative to inputDirectory -> milliseconds
+    public Map<String, Double> files = new TreeMap<>();
+
+    /**
+     * Read the timings left by a previous run.
+     * @param outputDirectory where the timings live
+     * @return the previous timings or empty ones if there were none or they couldn't be read.
+     */
+    public static FileTimings load(final String outputDirectory) {
+        final Path timingsPath = Path.of(outputDirectory, FILE_NAME);
+        if (!Files.isRegularFile(timingsPath)) {
+            return new FileTimings();
+        }
+        try (InputStream inputStream = Files.newInputStream(timingsPath)) {
+            final FileTimings ret = new Yaml().loadAs(inputStream, FileTimings.class);
+            return ret == null ? new FileTimings() : ret;
+        } catch (IOException | RuntimeException e) {
+            Log.info("Ignoring unreadable timings " + timingsPath + ": " + e.getMessage());
+            return new FileTimings();
+        }
+    }
+
+    /**
+     * @param fileName e.g. a shard's piece of the timings
+     */
+    public synchronized void save(final String outputDirectory, final String fileName) throws IOException {
+        final Path timingsPath = Path.of(outputDirectory, fileName);
+        Files.createDirectories(timingsPath.getParent());
+        try (Writer writer = Files.newBufferedWriter(timingsPath)) {
+            new Yaml().dump(this, writer);
+        }
+    }
+
+    /**
+     * Combine the timings of all shards of a run.
+     * @param partials each shard's timings
+     */
+    public static FileTimings merge(final List<Path> partials) throws IOException {
+        final FileTimings merged = new FileTimings();
+        for (Path partial : partials) {
+            try (InputStream inputStream = Files.newInputStream(partial)) {
+                merged.files.putAll(new Yaml().loadAs(inputStream, FileTimings.class).files);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * @param javaFile path relative to inputDirectory
+     * @return nanoseconds or -1 if the file's never been timed
+     */
+    public synchronized long get(final String javaFile) {
+        final Number millis = this.files.get(javaFile);
+        return millis == null ? -1 : Math.round(millis.doubleValue() * 1e6);
+    }
+
+    /**
+     * @param javaFile path relative to inputDirectory
+     */
+    public synchronized void record(final String javaFile, final long nanos) {
+        this.files.put(javaFile, Math.round(nanos / 1e3) / 1e3);
+    }
+
+    /**
+     * Forget files which no longer exist.
+     * @param javaFiles every file in the current configuration, relative to inputDirectory
+     */
+    public synchronized void retain(final Set<String> javaFiles) {
+        this.files.keySet().retainAll(javaFiles);
+    }
+}
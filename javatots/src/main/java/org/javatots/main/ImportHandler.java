@@ -1,15 +1,48 @@
 package org.javatots.main;
 
+import com.github.javaparser.ast.visitor.ModifierVisitor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Supplier;
+
 public class ImportHandler {
     public String packageName;
     public String className;
     public String transformerClass;
     public TypescriptImport[] typescriptImports;
+    // creates a transformerClass instance without per-call reflection; null if there's no transformerClass.
+    public final Supplier<ModifierVisitor<Void>> transformerFactory;
 
     public ImportHandler(String packageName, String className, String transformerClass, TypescriptImport[] typescriptImports) {
         this.packageName = packageName;
         this.className = className;
         this.transformerClass = transformerClass;
         this.typescriptImports = typescriptImports;
+        this.transformerFactory = transformerClass == null ? null : makeFactory(transformerClass);
+    }
+
+    /**
+     * Resolve the transformer's no-arg constructor once.
+     * @param transformerClass name of a ModifierVisitor<Void> class
+     * @return a Supplier of new transformers
+     */
+    protected static Supplier<ModifierVisitor<Void>> makeFactory(final String transformerClass) {
+        final MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup().findConstructor(Class.forName(transformerClass), MethodType.methodType(void.class));
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("can't construct transformer " + transformerClass, e);
+        }
+        return () -> {
+            try {
+                return (ModifierVisitor<Void>) constructor.invoke();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("failed to construct transformer " + transformerClass, t);
+            }
+        };
     }
 }
@@ -0,0 +1,33 @@
+package org.javatots.main;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index ImportHandlers by package and class name with a fallback to the package's wildcard handler (className == null).
+ * Lookups give the same handler as scanning the handler list in order for the first match.
+ */
+public class ImportHandlerRegistry {
+    final Map<String, ImportHandler> byQualifiedName = new HashMap<>();
+    final Map<String, ImportHandler> wildcardByPackage = new HashMap<>();
+
+    public ImportHandlerRegistry(final ImportHandler[] handlers) {
+        for (ImportHandler handler : handlers) {
+            if (handler.className == null) {
+                this.wildcardByPackage.putIfAbsent(handler.packageName, handler);
+            } else if (!this.wildcardByPackage.containsKey(handler.packageName)) { // an earlier wildcard would shadow it
+                this.byQualifiedName.putIfAbsent(handler.packageName + '.' + handler.className, handler);
+            }
+        }
+    }
+
+    /**
+     * @param packageName package of the imported class
+     * @param className imported class
+     * @return the handler for that import or null if there isn't one.
+     */
+    public ImportHandler lookup(final String packageName, final String className) {
+        final ImportHandler handler = this.byQualifiedName.get(packageName + '.' + className);
+        return handler != null ? handler : this.wildcardByPackage.get(packageName);
+    }
+}
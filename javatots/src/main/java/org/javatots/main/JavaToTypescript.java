@@ -1,5 +1,11 @@
 package org.javatots.main;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Providers;
 import com.github.javaparser.ast.*;
 import com.github.javaparser.ast.expr.*;
 import com.github.javaparser.ast.type.ReferenceType;
@@ -13,19 +19,29 @@ import com.github.javaparser.printer.configuration.PrinterConfiguration;
 import com.github.javaparser.utils.Log;
 import com.github.javaparser.utils.SourceRoot;
 
-import lombok.SneakyThrows;
 import org.javatots.config.JtsConfig;
 import org.javatots.config.ModuleMap;
 import org.javatots.config.PackageMap;
+import org.javatots.jfr.PreProcessEvent;
+import org.javatots.jfr.TranslateFileEvent;
 import org.javatots.transformers.*;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -33,16 +49,14 @@ import java.util.stream.Collectors;
  */
 public class JavaToTypescript {
     public final static String TYPESCRIPT_FILE_EXTENSION = "ts";
+    public final static String DECLARATION_FILE_EXTENSION = "d.ts";
+    // characters of streamed output to collect before writing them out
+    public final static int STREAM_BUFFER_SIZE = 8192;
     // Default configuration to read if none specified on command line.
     protected final static String TEST_CONFIG_PATH = "javatots/src/main/resources/config.yaml";
     // Path from execution root (probably the javatots module directory) to the repo root.
     protected final static String PATH_TO_REPO_ROOT = "../";
 
-    // Import hacks
-    protected final static String DOT_SLASH = "__DOT_SLASHmarkerNoPackageShouldMatch__"; // ugly hack to add relative imports to AST.
-    protected final static String AT_SIGN = "__AT_SIGNmarkerNoPackageShouldMatch__"; // ugly hack to add relative imports to AST.
-    protected static final String DOT_DOT = "__DOT_DOTmarkerNoPackageShouldMatch__";
-
     // Type hacks
     public static final String OR_NULL = "__OR_NULLmarkerNoPackageShouldMatch__";
 
@@ -68,34 +82,269 @@ public class JavaToTypescript {
             new ImportHandler("java.io", null, null, noImports),
             new ImportHandler("java.net", "URL", null, noImports)
     };
+    public static final ImportHandlerRegistry IMPORT_HANDLER_REGISTRY = new ImportHandlerRegistry(IMPORT_HANDLERS);
 
     // Config controls where to look for Java source and what Typescript src hierarchy to map it to
     protected final JtsConfig config;
 
-    JavaToTypescript(JtsConfig config) {
+    // Writes output files unless they're unchanged; PrintWriter used the default charset so we do too.
+    protected final OutputWriter outputWriter = new OutputWriter(Charset.defaultCharset());
+
+    // Parsed CompilationUnits still referenced (by us or a SourceRoot cache) and the most there have been at once.
+    protected final AtomicInteger retainedAsts = new AtomicInteger();
+    protected final AtomicInteger peakRetainedAsts = new AtomicInteger();
+
+    // References of the files translated by walkModules; null unless config.dependencyGraph.
+    protected DependencyGraph dependencyGraph = null;
+
+    // Set by BatchRun to share parsing and worker threads with other configs; otherwise null.
+    protected SharedParseCache.Session parseSession = null;
+    protected ExecutorService executor = null;
+
+    public JavaToTypescript(JtsConfig config) {
         this.config = config;
     }
 
     /**
-     * main defaults to the TEST_CONFIG_PATH if you don't specify one.
+     * main defaults to the TEST_CONFIG_PATH if you don't specify one. Several configs are translated as a BatchRun.
+     * Options:
+     *   --threads N  translate with N workers (0 for one per available processor); overrides config `threads`
+     *   --incremental  only re-translate files whose inputs changed since the last run; overrides config `incremental`
+     *   --stream  write each file as it's printed instead of building it in memory; overrides config `streamOutput`
+     *   --bounded-memory  don't keep parsed files in the SourceRoot cache; overrides config `boundedMemory`
+     *   --pipeline  read, transform and write in overlapping stages; overrides config `pipeline`
+     *   --declarations  write .d.ts files with only signatures; overrides config `declarationsOnly`
+     *   --report FILE  write per-phase timings to a JSON file; overrides config `report`
+     *   --dependency-graph  save which classes each file refers to; overrides config `dependencyGraph`
+     *   --affected-by FILE  print the outputs to regenerate if FILE changes, using the saved dependency graph; repeatable
+     *   --watch  after translating everything, retranslate files as they change; see TranslationWatcher
+     *   --daemon  keep running and translate files as requested on stdin; see TranslationDaemon
+     *   --batch FILE  also translate the configs listed in the YAML FILE; see BatchRun
+     *   --shard i/N  translate the i'th of N shares of the files; overrides config `shard`
+     *   --timings  save how long each file took and start the slowest first next time; overrides config `timings`
+     * `merge [config]` combines the manifests, dependency graphs and reports of all shards of a run; see Shards.
      * @param args usual java argv structure
      * @throws IOException
      */
     public static void main(String[] args) throws IOException {
         Log.setAdapter(new Log.StandardOutStandardErrorAdapter());
-        final String configPath = args.length > 0 ? args[0] : TEST_CONFIG_PATH;
+        final List<Path> configPaths = new ArrayList<>();
+        final boolean merge = args.length > 0 && "merge".equals(args[0]);
+        boolean daemon = false;
+        boolean watch = false;
+        final List<String> affectedBy = new ArrayList<>();
+        // command line settings, applied over the YAML each time it's loaded
+        final List<Consumer<JtsConfig>> overrides = new ArrayList<>();
+        for (int i = merge ? 1 : 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--threads":
+                    final int threads = Integer.parseInt(expectOptionValue(args, ++i));
+                    overrides.add(c -> c.threads = threads);
+                    break;
+                case "--incremental":
+                    overrides.add(c -> c.incremental = true);
+                    break;
+                case "--stream":
+                    overrides.add(c -> c.streamOutput = true);
+                    break;
+                case "--bounded-memory":
+                    overrides.add(c -> c.boundedMemory = true);
+                    break;
+                case "--pipeline":
+                    overrides.add(c -> c.pipeline = true);
+                    break;
+                case "--declarations":
+                    overrides.add(c -> c.declarationsOnly = true);
+                    break;
+                case "--report":
+                    final String report = expectOptionValue(args, ++i);
+                    overrides.add(c -> c.report = report);
+                    break;
+                case "--dependency-graph":
+                    overrides.add(c -> c.dependencyGraph = true);
+                    break;
+                case "--affected-by":
+                    affectedBy.add(expectOptionValue(args, ++i));
+                    break;
+                case "--watch":
+                    watch = true;
+                    break;
+                case "--daemon":
+                    daemon = true;
+                    break;
+                case "--shard":
+                    final String shard = expectOptionValue(args, ++i);
+                    new Shards(shard); // fail early if it's malformed
+                    overrides.add(c -> c.shard = shard);
+                    break;
+                case "--timings":
+                    overrides.add(c -> c.timings = true);
+                    break;
+                case "--batch":
+                    configPaths.addAll(BatchRun.loadBatch(Path.of(expectOptionValue(args, ++i))));
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("unknown option: " + args[i]);
+                    }
+                    configPaths.add(Path.of(args[i]));
+            }
+        }
+        final Consumer<JtsConfig> applyOverrides = c -> overrides.forEach(override -> override.accept(c));
+        if (merge) {
+            for (Path configPath : configPaths.isEmpty() ? List.of(Path.of(TEST_CONFIG_PATH)) : configPaths) {
+                final JtsConfig config = loadConfig(String.valueOf(configPath));
+                applyOverrides.accept(config);
+                Shards.merge(config);
+            }
+            return;
+        }
+        if (configPaths.size() > 1) {
+            if (daemon || watch || !affectedBy.isEmpty()) {
+                throw new IllegalArgumentException("--daemon, --watch and --affected-by take a single config");
+            }
+            new BatchRun(configPaths, applyOverrides).run();
+            return;
+        }
+        final String configPath = configPaths.isEmpty() ? TEST_CONFIG_PATH : String.valueOf(configPaths.get(0));
+        if (daemon) {
+            // stdout carries responses, so anything else printed there goes to stderr
+            final PrintStream responses = System.out;
+            System.setOut(System.err);
+            Log.setAdapter(new TranslationDaemon.StandardErrorAdapter());
+            new TranslationDaemon(Path.of(configPath), applyOverrides).serve(System.in, responses);
+            return;
+        }
+        if (!affectedBy.isEmpty()) {
+            Log.setAdapter(new TranslationDaemon.StandardErrorAdapter()); // stdout lists the outputs
+        }
         Log.info("Reading YAML configuration from: " + configPath);
         final JtsConfig config = loadConfig(configPath);
+        applyOverrides.accept(config);
+        if (!affectedBy.isEmpty()) {
+            final JavaToTypescript translator = new JavaToTypescript(config);
+            final Set<Path> outputs = new LinkedHashSet<>();
+            for (String javaFile : affectedBy) {
+                outputs.addAll(translator.affectedBy(Path.of(javaFile)));
+            }
+            outputs.forEach(System.out::println);
+            return;
+        }
         SourceRoot sourceRoot = new SourceRoot(Paths.get(config.inputDirectory));
+        if (watch) {
+            config.boundedMemory = true; // the SourceRoot cache would hide edits
+            final JavaToTypescript translator = new JavaToTypescript(config);
+            // watch before the first pass so edits made during it aren't missed
+            try (TranslationWatcher watcher = new TranslationWatcher(translator, sourceRoot)) {
+                translator.walkModules(sourceRoot);
+                watcher.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
         new JavaToTypescript(config).walkModules(sourceRoot);
     }
 
+    /**
+     * Get the value following a command line option.
+     * @param args usual java argv structure
+     * @param i index of the expected value
+     * @return the value
+     */
+    protected static String expectOptionValue(final String[] args, final int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("expected a value after " + args[i - 1]);
+        }
+        return args[i];
+    }
+
     /**
      * Walk the modules specified in the config, parse the source, convert to typescript, write to new location.
+     * Files from all modules are translated by `config.threads` workers; the output doesn't depend on the worker count.
+     * With `config.pipeline` those workers sit between reading and writing stages; see TranslationPipeline.
+     * If `config.incremental`, files whose inputs match the manifest from the last run are skipped.
+     * If `config.report`, per-phase timings are written there as JSON.
+     * If `config.dependencyGraph`, the classes each file refers to are saved for `affectedBy`.
+     * Parallel workers take the most expensive files first; with `config.timings` each file's time is saved to
+     * estimate that next time. See WorkScheduler.
+     * If `config.shard`, only that share of the files is translated and the manifest, graph, timings and report are saved as
+     * pieces for Shards.merge.
      * @param sourceRoot a Javaparser SourceRoot, which may be shared with other projects.
      * @throws IOException
      */
     public void walkModules (final SourceRoot sourceRoot) throws IOException {
+        final TranslationReport report = this.config.report == null ? null : new TranslationReport();
+        final long discoverStart = System.nanoTime();
+        List<TranslationJob> jobs = this.findJobs();
+        if (report != null) {
+            report.setDiscovery(System.nanoTime() - discoverStart, jobs.size());
+        }
+        final Shards shards = this.config.shard == null ? null : new Shards(this.config.shard);
+        if (shards != null) {
+            jobs = shards.select(jobs); // after finding all of them so that siblings are complete
+            if (report != null) {
+                report.setShard(String.valueOf(shards));
+            }
+        }
+        if (this.config.dependencyGraph) {
+            this.dependencyGraph = DependencyGraph.load(this.config.outputDirectory);
+            // files skipped by an incremental run keep their references from the last run
+            this.dependencyGraph.retain(jobs.stream().map(job -> this.getInputRelativePath(job.sourceFileName)).collect(Collectors.toSet()));
+        }
+        final FileTimings timings = this.config.timings ? FileTimings.load(this.config.outputDirectory) : null;
+        if (timings != null) {
+            // likewise
+            timings.retain(jobs.stream().map(job -> this.getInputRelativePath(job.sourceFileName)).collect(Collectors.toSet()));
+        }
+        TranslationManifest manifest = null;
+        if (this.config.incremental) {
+            manifest = new TranslationManifest();
+            jobs = manifest.update(TranslationManifest.load(this.config.outputDirectory), this.config, jobs, shards == null);
+        }
+        final WorkScheduler scheduler = new WorkScheduler(jobs, timings, job -> this.getInputRelativePath(job.sourceFileName));
+        final int workerCount = this.config.getWorkerCount();
+        if (this.config.pipeline) {
+            if (this.config.streamOutput) {
+                throw new IllegalArgumentException("pipeline and streamOutput can't be combined: the pipeline writes whole files");
+            }
+            new TranslationPipeline(this, sourceRoot, report, workerCount).run(jobs, scheduler);
+        } else if (workerCount <= 1) {
+            // in directory order: one worker finishes at the same time whatever the order
+            for (int i = 0; i < jobs.size(); ++i) {
+                final long start = System.nanoTime();
+                this.translate(sourceRoot, jobs.get(i), report);
+                scheduler.completed(i, System.nanoTime() - start);
+            }
+        } else {
+            this.translateInParallel(sourceRoot, jobs, scheduler, workerCount, report);
+        }
+        if (manifest != null) {
+            // only after everything was written
+            manifest.save(this.config.outputDirectory, shards == null ? TranslationManifest.FILE_NAME : shards.partial(TranslationManifest.FILE_NAME));
+        }
+        if (this.dependencyGraph != null) {
+            this.dependencyGraph.save(this.config.outputDirectory, shards == null ? DependencyGraph.FILE_NAME : shards.partial(DependencyGraph.FILE_NAME));
+        }
+        if (timings != null) {
+            timings.save(this.config.outputDirectory, shards == null ? FileTimings.FILE_NAME : shards.partial(FileTimings.FILE_NAME));
+        }
+        Log.info("Output: " + this.outputWriter);
+        Log.info("Peak retained ASTs: " + this.peakRetainedAsts.get());
+        if (report != null) {
+            final String reportPath = shards == null ? this.config.report : shards.partial(this.config.report);
+            report.write(Path.of(reportPath), this.config.reportTopFiles);
+            Log.info("Report: " + reportPath);
+        }
+    }
+
+    /**
+     * Find the Java files in each of the configured modules and figure out where their translations go.
+     * @return a job for each file, in module order and then directory order.
+     * @throws IOException
+     */
+    protected List<TranslationJob> findJobs() throws IOException {
+        final List<TranslationJob> jobs = new ArrayList<>();
         for (var moduleMapEntry : this.config.moduleMaps.entrySet()) {
             String javaModuleName = moduleMapEntry.getKey();
             ModuleMap moduleMap = moduleMapEntry.getValue();
@@ -111,37 +360,206 @@ public class JavaToTypescript {
 //                    .forEach(System.out::println)
             ;
 
+            // index package siblings in case we need to explicitly import them.
+            final PackageIndex packageIndex = new PackageIndex(javaSrcRootPath, files);
+
             // iterate over found Java files
             for (Path filePath: files) {
-                // Find package siblings in case we need to explicitly import them.
-                final int pathLength = filePath.getNameCount();
-                final Path dir = filePath.subpath(0, pathLength - 1);
-                final Set<String> siblings = Arrays.stream(files).filter(neighbor ->
-                        !neighbor.equals(filePath)
-                        && neighbor.getNameCount() == pathLength
-                        && neighbor.subpath(0, pathLength - 1).equals(dir)
-                ).map(neighbor -> {
-                    String name = String.valueOf(neighbor.getName(pathLength - 1));
-                    int dot = name.lastIndexOf('.');
-                    return dot == -1 ? name : name.substring(0, dot);
-                }).collect(Collectors.toSet());
-
-                // Calculate java and typescript paths.
-                final String javaFilepath = String.valueOf(javaSrcRootPath.relativize(filePath));
-                PackageMap packageMap = moduleMap.expectPackageMapForFile(javaModuleName, javaFilepath);
-                final String tsFileName = packageMap.getFileName(javaFilepath);
-
-                // TS-ify file
-                Path tsFilePath = Path.of(this.config.outputDirectory,moduleMap.outputPath, tsFileName);
-                Log.info("-- "  + javaFilepath + " -> " + tsFilePath);
-                final String sourceFileName = String.valueOf(Path.of(String.valueOf(javaSrcRootPath), javaFilepath));
-                String transformed = this.transformFile(sourceRoot, sourceFileName, siblings, moduleMap, packageMap);
+                jobs.add(this.makeJob(javaModuleName, moduleMap, javaSrcRootPath, filePath, packageIndex.getSiblings(filePath)));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * List the outputs to regenerate when `javaFile` is added, changed, renamed or deleted: its own and those of the
+     * files which refer to its class, according to the dependency graph from the last run with `config.dependencyGraph`.
+     * @param javaFile absolute, or relative to the config's inputDirectory; needn't exist
+     * @return Typescript paths, the file's own first
+     * @throws IllegalStateException if there's no dependency graph
+     * @throws IOException
+     */
+    public List<Path> affectedBy(final Path javaFile) throws IOException {
+        if (!DependencyGraph.exists(this.config.outputDirectory)) {
+            throw new IllegalStateException("no " + DependencyGraph.FILE_NAME + " in " + this.config.outputDirectory + "; run with --dependency-graph first");
+        }
+        final DependencyGraph graph = DependencyGraph.load(this.config.outputDirectory);
+        final TranslationJob job = this.findJob(javaFile, Collections.emptySet());
+        final String className = job.javaFilepath.substring(0, job.javaFilepath.lastIndexOf('.')).replace(File.separatorChar, '.');
+        final List<Path> ret = new ArrayList<>();
+        ret.add(job.tsFilePath);
+        for (String dependent : graph.getDependents(className)) {
+            final Path tsFilePath = this.findJob(Path.of(dependent), Collections.emptySet()).tsFilePath;
+            if (!ret.contains(tsFilePath)) {
+                ret.add(tsFilePath);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @param sourceFileName path of a Java file under the config's inputDirectory
+     * @return the path relative to inputDirectory, e.g. module/src/main/java/org/example/A.java
+     */
+    protected String getInputRelativePath(final String sourceFileName) {
+        final Path inputDirectory = Path.of(this.config.inputDirectory == null ? "" : this.config.inputDirectory).toAbsolutePath().normalize();
+        return String.valueOf(inputDirectory.relativize(Path.of(sourceFileName).toAbsolutePath().normalize()));
+    }
+
+    /**
+     * Find the module a single Java file belongs to and index just its package's directory.
+     * @param javaFile absolute, or relative to the config's inputDirectory
+     * @return the file's job
+     * @throws IllegalArgumentException if no module's srcRoot contains the file
+     * @throws IOException
+     */
+    public TranslationJob findJob(final Path javaFile) throws IOException {
+        return this.findJob(javaFile, null);
+    }
+
+    /**
+     * Like findJob above with known siblings.
+     * @param siblings other class names in the file's package or null to list its directory (if there is one)
+     */
+    public TranslationJob findJob(final Path javaFile, final Set<String> siblings) throws IOException {
+        final Path inputDirectory = Path.of(this.config.inputDirectory == null ? "" : this.config.inputDirectory).toAbsolutePath().normalize();
+        final Path filePath = inputDirectory.resolve(javaFile).normalize();
+        for (var moduleMapEntry : this.config.moduleMaps.entrySet()) {
+            final ModuleMap moduleMap = moduleMapEntry.getValue();
+            final Path javaSrcRootPath = inputDirectory.resolve(moduleMapEntry.getKey()).resolve(moduleMap.srcRoot).normalize();
+            if (filePath.startsWith(javaSrcRootPath)) {
+                Set<String> jobSiblings = siblings;
+                if (jobSiblings == null) {
+                    Path[] files = {};
+                    if (Files.isDirectory(filePath.getParent())) {
+                        try (var dirFiles = Files.list(filePath.getParent())) {
+                            files = dirFiles.filter(Files::isRegularFile).toArray(Path[]::new);
+                        }
+                    }
+                    jobSiblings = new PackageIndex(javaSrcRootPath, files).getSiblings(filePath);
+                }
+                return this.makeJob(moduleMapEntry.getKey(), moduleMap, javaSrcRootPath, filePath, jobSiblings);
+            }
+        }
+        throw new IllegalArgumentException(javaFile + " isn't under any module's srcRoot");
+    }
+
+    /**
+     * Calculate java and typescript paths for `filePath`.
+     */
+    protected TranslationJob makeJob(final String javaModuleName, final ModuleMap moduleMap, final Path javaSrcRootPath, final Path filePath, final Set<String> siblings) {
+        final String javaFilepath = String.valueOf(javaSrcRootPath.relativize(filePath));
+        PackageMap packageMap = moduleMap.expectPackageMapForFile(javaModuleName, javaFilepath);
+        final String tsFileName = this.config.declarationsOnly
+                ? setExtension(packageMap.getFileName(javaFilepath), DECLARATION_FILE_EXTENSION)
+                : packageMap.getFileName(javaFilepath);
+        Path tsFilePath = Path.of(this.config.outputDirectory == null ? "" : this.config.outputDirectory, moduleMap.outputPath, tsFileName);
+        final String sourceFileName = String.valueOf(Path.of(String.valueOf(javaSrcRootPath), javaFilepath));
+        return new TranslationJob(javaModuleName, moduleMap, packageMap, javaFilepath, sourceFileName, tsFilePath, siblings);
+    }
+
+    /**
+     * TS-ify one file and write the result if it differs from what's there.
+     * @param sourceRoot a Javaparser SourceRoot; not shared between threads.
+     * @param job the file to translate
+     * @param report collects the file's timings; may be null
+     * @return whether the output file was written
+     * @throws IOException
+     */
+    protected boolean translate(final SourceRoot sourceRoot, final TranslationJob job, final TranslationReport report) throws IOException {
+        Log.info("-- "  + job.javaFilepath + " -> " + job.tsFilePath);
+        final TranslateFileEvent event = new TranslateFileEvent();
+        event.begin();
+        // JFR wants the node count, which FileMetrics collects.
+        final TranslationReport.FileMetrics metrics = report == null && !event.isEnabled() ? null : new TranslationReport.FileMetrics(job.javaFilepath, job.javaModuleName);
+        Boolean wrote = null;
+        try {
+            if (this.config.streamOutput) {
+                final long[] printing = new long[2]; // start and end of printing within the write
+                final long start = System.nanoTime();
+                wrote = this.outputWriter.write(job.tsFilePath, channel -> {
+                    printing[0] = System.nanoTime();
+                    this.transformFile(sourceRoot, job.sourceFileName, job.siblings, job.moduleMap, job.packageMap, channel, metrics);
+                    printing[1] = System.nanoTime();
+                });
+                if (metrics != null) {
+                    metrics.add("write", (printing[0] - start) + (System.nanoTime() - printing[1]));
+                }
+            } else {
+                String transformed = this.transformFile(sourceRoot, job.sourceFileName, job.siblings, job.moduleMap, job.packageMap, metrics);
 
                 // Write result
-                Files.createDirectories(Path.of(new File(String.valueOf(tsFilePath)).getParent()));
-                Writer writer = new PrintWriter(String.valueOf(tsFilePath));
-                writer.write(transformed);
-                writer.close();
+                final long start = System.nanoTime();
+                wrote = this.outputWriter.write(job.tsFilePath, transformed);
+                TranslationReport.FileMetrics.lap(metrics, "write", start);
+            }
+            if (report != null) {
+                metrics.outputBytes = Files.size(job.tsFilePath);
+                report.add(metrics);
+            }
+            return wrote;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.javaFile = job.javaFilepath;
+                event.module = job.javaModuleName;
+                event.nodeCount = metrics == null ? 0 : metrics.astNodes;
+                event.outcome = wrote == null ? "failed" : wrote ? "written" : "unchanged";
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Translate jobs on a pool of workers. SourceRoot isn't thread-safe so each worker parses with its own copy;
+     * printers and pre-processors are already created per file.
+     * @param sourceRoot template for the workers' SourceRoots
+     * @param jobs files to translate
+     * @param scheduler the order to start `jobs` in, told as each finishes
+     * @param workerCount number of threads, unless there's a shared `executor`
+     * @param report collects timings; may be null
+     * @throws IOException the first failure, in job order
+     */
+    protected void translateInParallel(final SourceRoot sourceRoot, final List<TranslationJob> jobs, final WorkScheduler scheduler, final int workerCount, final TranslationReport report) throws IOException {
+        final ThreadLocal<SourceRoot> workerSourceRoot = ThreadLocal.withInitial(() ->
+                new SourceRoot(sourceRoot.getRoot(), sourceRoot.getParserConfiguration())
+        );
+        final ExecutorService executor = this.executor != null ? this.executor : Executors.newFixedThreadPool(workerCount);
+        final List<Future<Void>> results = new ArrayList<>(Collections.nCopies(jobs.size(), null)); // in job order
+        try {
+            for (int index : scheduler.getOrder()) {
+                results.set(index, executor.submit(() -> {
+                    final long start = System.nanoTime();
+                    try {
+                        this.translate(workerSourceRoot.get(), jobs.get(index), report);
+                    } catch (IOException | RuntimeException | Error e) {
+                        scheduler.failed(index);
+                        throw e;
+                    }
+                    scheduler.completed(index, System.nanoTime() - start);
+                    return null;
+                }));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while translating");
+                }
+            }
+        } finally {
+            if (executor == this.executor) {
+                results.stream().filter(Objects::nonNull).forEach(result -> result.cancel(true)); // others still use the pool
+            } else {
+                executor.shutdownNow();
             }
         }
     }
@@ -156,12 +574,79 @@ public class JavaToTypescript {
      * @return Typescript-conformant (ideally) file contents.
      */
     public String transformFile(final SourceRoot sourceRoot, final String sourceFileName, final Set<String> siblings, final ModuleMap moduleMap, final PackageMap packageMap) {
+        return this.transformFile(sourceRoot, sourceFileName, siblings, moduleMap, packageMap, (TranslationReport.FileMetrics) null);
+    }
+
+    /**
+     * Like transformFile above, recording phase timings in `metrics` if it isn't null.
+     */
+    public String transformFile(final SourceRoot sourceRoot, final String sourceFileName, final Set<String> siblings, final ModuleMap moduleMap, final PackageMap packageMap, final TranslationReport.FileMetrics metrics) {
+        return this.printFile(sourceRoot, sourceFileName, siblings, moduleMap, packageMap, getPrinterConfiguration(), null, metrics).toString();
+    }
+
+    /**
+     * Like transformFile above but write the Typescript to `channel` as it's printed so only a buffer's worth is in memory.
+     * @param channel where the Typescript goes; left open
+     * @throws IOException
+     */
+    public void transformFile(final SourceRoot sourceRoot, final String sourceFileName, final Set<String> siblings, final ModuleMap moduleMap, final PackageMap packageMap, final WritableByteChannel channel) throws IOException {
+        this.transformFile(sourceRoot, sourceFileName, siblings, moduleMap, packageMap, channel, null);
+    }
+
+    /**
+     * Like transformFile above, recording phase timings in `metrics` if it isn't null.
+     */
+    public void transformFile(final SourceRoot sourceRoot, final String sourceFileName, final Set<String> siblings, final ModuleMap moduleMap, final PackageMap packageMap, final WritableByteChannel channel, final TranslationReport.FileMetrics metrics) throws IOException {
+        final Writer out = Channels.newWriter(channel, Charset.defaultCharset().newEncoder(), STREAM_BUFFER_SIZE);
+        final TypescriptPrettyPrinter prettyPrinter;
+        try {
+            prettyPrinter = this.printFile(sourceRoot, sourceFileName, siblings, moduleMap, packageMap, getPrinterConfiguration(), out, metrics);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        prettyPrinter.flushStream();
+    }
+
+    /**
+     * Parse, pre-process and print `sourceFileName`.
+     * @param configuration printer configuration
+     * @param out where to stream the Typescript as it's printed or null to keep it in the printer; see TypescriptPrettyPrinter.streamTo
+     * @param metrics collects phase timings and the AST size; may be null
+     * @return the printer after printing
+     */
+    protected TypescriptPrettyPrinter printFile(final SourceRoot sourceRoot, final String sourceFileName, final Set<String> siblings, final ModuleMap moduleMap, final PackageMap packageMap, final PrinterConfiguration configuration, final Writer out, final TranslationReport.FileMetrics metrics) {
 
         // apparently relative to Maven module root
-        CompilationUnit cu = sourceRoot.parse("", String.valueOf(sourceRoot.getRoot().relativize(Path.of(sourceFileName))));
+        long start = System.nanoTime();
+        CompilationUnit cu = this.parse(sourceRoot, String.valueOf(sourceRoot.getRoot().relativize(Path.of(sourceFileName))));
+        TranslationReport.FileMetrics.lap(metrics, "parse", start);
+        if (metrics != null) {
+            metrics.astNodes = cu.stream().count();
+        }
+
+        try {
+            return this.printCompilationUnit(cu, sourceFileName, siblings, moduleMap, configuration, out, metrics, null);
+        } finally {
+            if (!this.isCachedBySourceRoot()) {
+                this.retainedAsts.decrementAndGet(); // nothing refers to cu once we return, even if printing failed
+            }
+        }
+    }
 
+    /**
+     * Pre-process and print a parsed file.
+     * @param cu the parsed file, which gets modified
+     * @param sourceFileName for logging
+     * @param out where to stream the Typescript as it's printed or null to keep it in the printer
+     * @param warnings told about guesses, e.g. imports no module maps; may be null
+     * @return the printer after printing
+     */
+    protected TypescriptPrettyPrinter printCompilationUnit(final CompilationUnit cu, final String sourceFileName, final Set<String> siblings, final ModuleMap moduleMap, final PrinterConfiguration configuration, final Writer out, final TranslationReport.FileMetrics metrics, final Consumer<String> warnings) {
         Log.info("Porting file " + sourceFileName + ":");
-        TypescriptPrettyPrinter prettyPrinter = new TypescriptPrettyPrinter(getPrinterConfiguration(), cu.getPackageDeclaration());
+        TypescriptPrettyPrinter prettyPrinter = new TypescriptPrettyPrinter(configuration, cu.getPackageDeclaration());
+        if (out != null) {
+            prettyPrinter.streamTo(out, STREAM_BUFFER_SIZE);
+        }
 
         final BiConsumer<SourcePrinter, Name> handlePackage = (final SourcePrinter printer, final Name packageName) -> {
             if (this.config.packageTemplate != null) {
@@ -169,23 +654,6 @@ public class JavaToTypescript {
             }
         };
 
-        final BiConsumer<SourcePrinter, ImportDeclaration> handleImport = (final SourcePrinter printer, final ImportDeclaration importDecl) -> {
-            final Map<String, String> MY_MAP = Map.of("com.janeirodigital.shapetrees.core.enums", "../../core/enums", "com.janeirodigital.shapetrees.core", "../../core");
-
-            final String path = importDecl.getName().asString();
-            int iName = path.lastIndexOf('.');
-            final String pkg = iName == -1 ? "" : typescriptImportify(path.substring(0, iName)); // map back from names with slashes and special character markers
-            final String cls = path.substring(iName + 1);
-            // if (this.config.unknownImportTemplate != null)
-            // check importDecl.isStatic()
-            if (importDecl.isAsterisk()) {
-                printer.println("import * as " + cls + " from '" + pkg + "';");
-            } else {
-                printer.println("import { " + cls + " } from '" + pkg + "';");
-            }
-            // printer.println(String.format(this.config.unknownImportTemplate, className, packageName));
-        };
-
         final BiConsumer<SourcePrinter, NodeList<ReferenceType>> handleThrows = (final SourcePrinter printer, final NodeList<ReferenceType> throwsList) -> {
             if (this.config.commentThrows) {
                 printer.print(" /* throws ");
@@ -215,28 +683,111 @@ public class JavaToTypescript {
             // could call this on each to get overloaded form: annotation.accept(this, null);
         };
 
+        long start;
+        if (this.config.declarationsOnly) {
+            // Drop bodies first so nothing below visits them and siblings only used in bodies aren't imported.
+            start = System.nanoTime();
+            new DeclarationStripper().visit(cu, null);
+            TranslationReport.FileMetrics.lap(metrics, "strip", start);
+            prettyPrinter.setDeclarationsOnly(true);
+        }
+
         // Get the set of referenced siblings that are referenced in the cu.
+        start = System.nanoTime();
         Set<String> referencedSiblings = new HashSet<>();
-        new ClassListVistor(siblings).visit(cu, referencedSiblings);
+        if (this.dependencyGraph == null) {
+            new ClassListVistor(siblings).visit(cu, referencedSiblings);
+        } else {
+            // the graph also wants the names that aren't siblings (yet)
+            final Set<String> referencedTypes = new LinkedHashSet<>();
+            new ClassListVistor(null).visit(cu, referencedTypes);
+            for (String type : referencedTypes) {
+                if (siblings == null || siblings.contains(type)) {
+                    referencedSiblings.add(type);
+                }
+            }
+            this.dependencyGraph.record(this.getInputRelativePath(sourceFileName), cu, referencedTypes, referencedSiblings);
+        }
 
         // The imports imply a list of pre-processors which will manipulate the AST to use Typescript types and methods.
-        for (ModifierVisitor<?> preProcessor : processImports(cu, referencedSiblings, moduleMap)) {
-            preProcessor.visit(cu, null);
-        }
+        final List<ModifierVisitor<?>> preProcessors = processImports(cu, referencedSiblings, moduleMap, warnings);
+        TranslationReport.FileMetrics.lap(metrics, "imports", start);
+        runPreProcessors(cu, preProcessors, metrics);
 
         prettyPrinter.setOnPackageDeclaration(handlePackage);
-        prettyPrinter.setOnImportDeclaration(handleImport);
         prettyPrinter.setOnThrows(handleThrows);
         prettyPrinter.setOnMethodAnnotations(handleMethodAnnotations);
 
+        start = System.nanoTime();
         prettyPrinter.visit(cu, null);
-        return prettyPrinter.toString();
+        TranslationReport.FileMetrics.lap(metrics, "print", start);
+        return prettyPrinter;
     }
 
-    private ArrayList<ModifierVisitor<?>> processImports(final CompilationUnit cu, final Set<String> referencedSiblings, final ModuleMap moduleMap) {
+    /**
+     * Parse a file. Normally the SourceRoot caches the CompilationUnit; with `config.boundedMemory` it's parsed
+     * outside the cache so it can be collected as soon as it has been printed. With `config.declarationsOnly`, method
+     * bodies are blanked before parsing. In a BatchRun, files are parsed through the shared cache instead.
+     * @param sourceRoot a Javaparser SourceRoot
+     * @param relativePath path relative to the SourceRoot
+     * @return the parsed file
+     */
+    protected CompilationUnit parse(final SourceRoot sourceRoot, final String relativePath) {
+        final CompilationUnit cu;
+        final Path path = sourceRoot.getRoot().resolve(relativePath);
+        if (this.parseSession != null) {
+            cu = this.parseSession.parse(this.getParseKey(path), () -> this.parseOutsideCache(sourceRoot, path));
+        } else if (this.config.boundedMemory || this.config.declarationsOnly) {
+            cu = this.parseOutsideCache(sourceRoot, path);
+            if (!this.config.boundedMemory) {
+                sourceRoot.add(cu);
+            }
+        } else {
+            cu = sourceRoot.parse("", relativePath);
+        }
+        final int retained = this.retainedAsts.incrementAndGet();
+        this.peakRetainedAsts.accumulateAndGet(retained, Math::max);
+        return cu;
+    }
+
+    /**
+     * @return whether `parse` leaves ASTs in the SourceRoot's cache, so they stay retained after translation
+     */
+    protected boolean isCachedBySourceRoot() {
+        return this.parseSession == null && !this.config.boundedMemory;
+    }
+
+    protected CompilationUnit parseOutsideCache(final SourceRoot sourceRoot, final Path path) {
+        final ParserConfiguration parserConfiguration = sourceRoot.getParserConfiguration();
+        final ParseResult<CompilationUnit> result;
+        try {
+            result = new JavaParser(parserConfiguration).parse(ParseStart.COMPILATION_UNIT, this.config.declarationsOnly
+                    ? Providers.provider(BodySkipper.skipBodies(Files.readString(path, parserConfiguration.getCharacterEncoding())))
+                    : Providers.provider(path, parserConfiguration.getCharacterEncoding()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!result.isSuccessful()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        final CompilationUnit cu = result.getResult().get();
+        cu.setStorage(path, parserConfiguration.getCharacterEncoding());
+        return cu;
+    }
+
+    /**
+     * Identify what a parse of `sourceFile` produces, for sharing it between configs.
+     * @param sourceFile Java file
+     * @return the real path, marked if bodies are skipped
+     */
+    protected String getParseKey(final Path sourceFile) {
+        final String path = String.valueOf(sourceFile.toAbsolutePath().normalize());
+        return this.config.declarationsOnly ? path + " (declarations)" : path;
+    }
+
+    private ArrayList<ModifierVisitor<?>> processImports(final CompilationUnit cu, final Set<String> referencedSiblings, final ModuleMap moduleMap, final Consumer<String> warnings) {
         ArrayList<ModifierVisitor<?>> preProcessors = new ArrayList<>();
         cu.accept(new ModifierVisitor<Void>() {
-            @SneakyThrows // hides ClassNotFoundException, NoSuchMethodException, InstantiationException, IllegalAccessException, InvocationTargetException
             @Override
             public Visitable visit(final CompilationUnit n, final Void arg) {
                 Set<String> handledImports = new HashSet<>();
@@ -252,7 +803,7 @@ public class JavaToTypescript {
                     final String cls = path.substring(iName + 1);
 
                     // Find corresponding transformer
-                    ImportHandler handler = Arrays.stream(IMPORT_HANDLERS).filter(tc -> tc.packageName.equals(pkg) && (tc.className == null || tc.className.equals(cls))).findFirst().orElse(null);
+                    ImportHandler handler = IMPORT_HANDLER_REGISTRY.lookup(pkg, cls);
                     if (handler == null) {
                         if (importDecl.isAsterisk()) {
                             throw new IllegalStateException("can't yet deal with * import: " + importDecl);
@@ -260,22 +811,25 @@ public class JavaToTypescript {
                             // final ImportDeclaration importDecl = (ImportDeclaration) importDecl.accept(this, arg); // visit in case it gets modified.
                             Optional<String> mappedName = JavaToTypescript.this.config.getMappedNameForPackage(importDecl.getNameAsString(), moduleMap, n.getPackageDeclaration().map(x -> x.getNameAsString()).orElse(null));
                             if (mappedName.isEmpty()) {
-                                importDecl.setAsterisk(true); // We don't know anything about it so we make a guess.
+                                // We don't know anything about it so we make a guess.
+                                final TypescriptModuleImport guess = TypescriptModuleImport.namespace(pkg.replace('.', '/'), cls);
+                                guess.attachTo(importDecl);
+                                if (warnings != null) {
+                                    warnings.accept("no module maps " + path + "; guessed " + guess);
+                                }
                             } else {
-                                importDecl.setName(mappedName.get() + '.' + cls);
+                                TypescriptModuleImport.named(mappedName.get(), cls).attachTo(importDecl);
                             }
-                            imports.add(importDecl);
+                            imports.add(importDecl); // keeps its comments
                         }
                     } else {
                         final String indexName = handler.packageName + '.' + handler.className;
                         if (!handledImports.contains(indexName)) {
-                            if (handler.transformerClass != null) {
-                                final Class<ModifierVisitor<Void>> clazz = (Class<ModifierVisitor<Void>>) Class.forName(handler.transformerClass);
-                                final ModifierVisitor<Void> visitor = clazz.getDeclaredConstructor().newInstance();
-                                preProcessors.add(visitor);
+                            if (handler.transformerFactory != null) {
+                                preProcessors.add(handler.transformerFactory.get());
                             }
                             for (TypescriptImport typescriptImport : handler.typescriptImports) {
-                                imports.add(new ImportDeclaration(typescriptImport.importName, typescriptImport.importIsStatic, typescriptImport.importIsAsterisk));
+                                imports.add(typescriptImport.toModuleImport().toImportDeclaration());
                             }
                             handledImports.add(indexName);
                         }
@@ -284,19 +838,106 @@ public class JavaToTypescript {
 
                 // Add imports for referenced siblings in current package.
                 for (String s : referencedSiblings) {
-                    imports.add(new ImportDeclaration(JavaToTypescript.this.DOT_SLASH + s + "." + s, false, false));
+                    imports.add(TypescriptModuleImport.named("./" + s, s).toImportDeclaration());
                 }
 
                 // Update imports with above changes
                 n.setImports(imports);
 
-                // Execute the rest of the AST logic
-                return super.visit(n, arg);
+                // The pre-processors do the rest of the AST logic so there's no need to walk the tree here.
+                return n;
             }
         }, null);
         return preProcessors;
     }
 
+    /**
+     * Run pre-processors in order. Consecutive NodeRewriters share a single traversal; any other ModifierVisitor
+     * gets its own.
+     * @param cu AST to modify
+     * @param preProcessors from processImports
+     */
+    protected static void runPreProcessors(final CompilationUnit cu, final List<ModifierVisitor<?>> preProcessors) {
+        runPreProcessors(cu, preProcessors, null);
+    }
+
+    /**
+     * Like runPreProcessors above, charging each pre-processor's time to "preprocess.<Visitor>" in `metrics` if it
+     * isn't null. The time fused passes spend walking the tree goes to "preprocess.traversal".
+     */
+    protected static void runPreProcessors(final CompilationUnit cu, final List<ModifierVisitor<?>> preProcessors, final TranslationReport.FileMetrics metrics) {
+        final List<NodeRewriter> fused = new ArrayList<>();
+        for (ModifierVisitor<?> preProcessor : preProcessors) {
+            if (preProcessor instanceof NodeRewriter) {
+                fused.add((NodeRewriter) preProcessor);
+            } else {
+                if (!fused.isEmpty()) {
+                    runFused(cu, fused, metrics);
+                    fused.clear();
+                }
+                final PreProcessEvent event = new PreProcessEvent();
+                event.begin();
+                boolean done = false;
+                try {
+                    final long start = System.nanoTime();
+                    preProcessor.visit(cu, null);
+                    TranslationReport.FileMetrics.lap(metrics, "preprocess." + preProcessor.getClass().getSimpleName(), start);
+                    done = true;
+                } finally {
+                    commit(event, cu, preProcessor.getClass().getSimpleName(), done);
+                }
+            }
+        }
+        if (!fused.isEmpty()) {
+            runFused(cu, fused, metrics);
+        }
+    }
+
+    private static void runFused(final CompilationUnit cu, final List<NodeRewriter> rewriters, final TranslationReport.FileMetrics metrics) {
+        final PreProcessEvent event = new PreProcessEvent();
+        event.begin();
+        boolean done = false;
+        try {
+            runFused(cu, new FusedRewriteVisitor(rewriters), rewriters, metrics);
+            done = true;
+        } finally {
+            if (event.isEnabled()) {
+                commit(event, cu, rewriters.stream().map(r -> r.getClass().getSimpleName()).collect(Collectors.joining("+")), done);
+            }
+        }
+    }
+
+    private static void runFused(final CompilationUnit cu, final FusedRewriteVisitor visitor, final List<NodeRewriter> rewriters, final TranslationReport.FileMetrics metrics) {
+        if (metrics == null) {
+            visitor.rewrite(cu);
+            return;
+        }
+        visitor.timeRewriters();
+        final long start = System.nanoTime();
+        visitor.rewrite(cu);
+        long traversal = System.nanoTime() - start;
+        for (NodeRewriter rewriter : rewriters) {
+            final long nanos = visitor.getRewriteNanos().getOrDefault(rewriter, 0L);
+            metrics.add("preprocess." + rewriter.getClass().getSimpleName(), nanos);
+            traversal -= nanos;
+        }
+        metrics.add("preprocess.traversal", traversal);
+    }
+
+    /**
+     * Record a pre-processor pass with JFR if it's listening.
+     */
+    private static void commit(final PreProcessEvent event, final CompilationUnit cu, final String preProcessor, final boolean done) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.javaFile = cu.getStorage().map(storage -> String.valueOf(storage.getPath())).orElse(null);
+            event.preProcessor = preProcessor;
+            event.nodeCount = cu.stream().count();
+            event.outcome = done ? "done" : "failed";
+            event.commit();
+        }
+    }
+
     /**
      * Given a filename, change the extension to ext.
      * @param filename
@@ -308,34 +949,26 @@ public class JavaToTypescript {
         return filename.substring(0, idx) + '.' + ext;
     }
 
-    public static String javaImportify(final String tsModule) {
-        return tsModule.startsWith("./")
-                ? JavaToTypescript.DOT_SLASH + tsModule.substring(2).replaceAll("/", ".")
-                : tsModule.startsWith("@")
-                ? JavaToTypescript.AT_SIGN + tsModule.substring(1).replaceAll("/", ".")
-                : tsModule.replaceAll("\\.\\.", JavaToTypescript.DOT_DOT).replaceAll("/", ".");
-    }
-
-    public static String typescriptImportify(final String tsModule) {
-        final String ret = tsModule.replaceAll("\\.", "/");
-        return ret.startsWith(JavaToTypescript.AT_SIGN)
-                ? "@" + ret.substring(JavaToTypescript.AT_SIGN.length())
-                : ret.startsWith(JavaToTypescript.DOT_SLASH)
-                ? "./" + ret.substring(JavaToTypescript.DOT_SLASH.length())
-                : ret.replaceAll(JavaToTypescript.DOT_DOT, "..");
+    /**
+     * @return `filename` with `suffix` inserted before its extension, e.g. report-other.json
+     */
+    public static String withSuffix(final String filename, final String suffix) {
+        final int dot = filename.lastIndexOf('.');
+        return dot > filename.lastIndexOf('/') + 1 ? filename.substring(0, dot) + suffix + filename.substring(dot) : filename + suffix;
     }
 
-    public static JtsConfig loadConfig(final String yamlFilePath) throws FileNotFoundException {
+    public static JtsConfig loadConfig(final String yamlFilePath) throws IOException {
         Yaml yaml = new Yaml();
-        InputStream inputStream = new FileInputStream(yamlFilePath);
-        return yaml.loadAs(inputStream, JtsConfig.class);
+        try (InputStream inputStream = new FileInputStream(yamlFilePath)) {
+            return yaml.loadAs(inputStream, JtsConfig.class);
+        }
     }
 
     /**
      * Use config and hard-coded values to configure the translator's output.
      * @return
      */
-    private PrinterConfiguration getPrinterConfiguration() {
+    public PrinterConfiguration getPrinterConfiguration() {
         PrinterConfiguration configuration = new DefaultPrinterConfiguration();
         configuration.addOption(new DefaultConfigurationOption(DefaultPrinterConfiguration.ConfigOption.SPACE_AROUND_OPERATORS, false));
         configuration.addOption(new DefaultConfigurationOption(DefaultPrinterConfiguration.ConfigOption.PRINT_JAVADOC, true));
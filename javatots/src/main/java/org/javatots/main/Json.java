@@ -0,0 +1,237 @@
+package org.javatots.main;
+
+import java.util.*;
+
+/**
+ * Just enough JSON for the report and the daemon protocol: objects become LinkedHashMaps, arrays Lists, numbers
+ * Doubles (or Longs if integral).
+ */
+public class Json {
+    final String text;
+    int pos;
+
+    Json(final String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param text a JSON value
+     * @return Map, List, String, Long, Double, Boolean or null
+     * @throws IllegalArgumentException if text isn't JSON
+     */
+    public static Object parse(final String text) {
+        final Json json = new Json(text);
+        final Object value = json.value();
+        json.skipSpace();
+        if (json.pos != text.length()) {
+            throw json.error("trailing characters");
+        }
+        return value;
+    }
+
+    /**
+     * @param value Map, Collection, String, Number, Boolean or null
+     * @return compact JSON
+     */
+    public static String write(final Object value) {
+        final StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    static void write(final StringBuilder sb, final Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            sb.append(quote((String) value));
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            String sep = "";
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sb.append(sep).append(quote(String.valueOf(entry.getKey()))).append(": ");
+                write(sb, entry.getValue());
+                sep = ", ";
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            String sep = "";
+            for (Object element : (Collection<?>) value) {
+                sb.append(sep);
+                write(sb, element);
+                sep = ", ";
+            }
+            sb.append(']');
+        } else {
+            sb.append(quote(String.valueOf(value)));
+        }
+    }
+
+    public static String quote(final String s) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    Object value() {
+        this.skipSpace();
+        if (this.pos >= this.text.length()) {
+            throw this.error("unexpected end");
+        }
+        final char c = this.text.charAt(this.pos);
+        switch (c) {
+            case '{': return this.object();
+            case '[': return this.array();
+            case '"': return this.string();
+            case 't': return this.literal("true", Boolean.TRUE);
+            case 'f': return this.literal("false", Boolean.FALSE);
+            case 'n': return this.literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return this.number();
+                }
+                throw this.error("unexpected '" + c + "'");
+        }
+    }
+
+    Map<String, Object> object() {
+        final Map<String, Object> ret = new LinkedHashMap<>();
+        ++this.pos;
+        this.skipSpace();
+        if (this.peek() == '}') {
+            ++this.pos;
+            return ret;
+        }
+        while (true) {
+            this.skipSpace();
+            if (this.peek() != '"') {
+                throw this.error("expected a key");
+            }
+            final String key = this.string();
+            this.skipSpace();
+            this.expect(':');
+            ret.put(key, this.value());
+            this.skipSpace();
+            if (this.peek() == ',') {
+                ++this.pos;
+            } else {
+                this.expect('}');
+                return ret;
+            }
+        }
+    }
+
+    List<Object> array() {
+        final List<Object> ret = new ArrayList<>();
+        ++this.pos;
+        this.skipSpace();
+        if (this.peek() == ']') {
+            ++this.pos;
+            return ret;
+        }
+        while (true) {
+            ret.add(this.value());
+            this.skipSpace();
+            if (this.peek() == ',') {
+                ++this.pos;
+            } else {
+                this.expect(']');
+                return ret;
+            }
+        }
+    }
+
+    String string() {
+        final StringBuilder sb = new StringBuilder();
+        ++this.pos;
+        while (true) {
+            if (this.pos >= this.text.length()) {
+                throw this.error("unterminated string");
+            }
+            final char c = this.text.charAt(this.pos++);
+            if (c == '"') {
+                return sb.toString();
+            } else if (c != '\\') {
+                sb.append(c);
+            } else {
+                if (this.pos >= this.text.length()) {
+                    throw this.error("unterminated string");
+                }
+                final char escaped = this.text.charAt(this.pos++);
+                switch (escaped) {
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (this.pos + 4 > this.text.length()) {
+                            throw this.error("bad unicode escape");
+                        }
+                        sb.append((char) Integer.parseInt(this.text.substring(this.pos, this.pos + 4), 16));
+                        this.pos += 4;
+                        break;
+                    default: sb.append(escaped);
+                }
+            }
+        }
+    }
+
+    Number number() {
+        final int start = this.pos;
+        while (this.pos < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.pos)) != -1) {
+            ++this.pos;
+        }
+        final String number = this.text.substring(start, this.pos);
+        try {
+            return number.matches("-?\\d+") ? (Number) Long.parseLong(number) : (Number) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw this.error("bad number " + number);
+        }
+    }
+
+    Object literal(final String literal, final Object value) {
+        if (!this.text.startsWith(literal, this.pos)) {
+            throw this.error("unexpected '" + this.text.charAt(this.pos) + "'");
+        }
+        this.pos += literal.length();
+        return value;
+    }
+
+    char peek() {
+        return this.pos < this.text.length() ? this.text.charAt(this.pos) : 0;
+    }
+
+    void expect(final char c) {
+        if (this.peek() != c) {
+            throw this.error("expected '" + c + "'");
+        }
+        ++this.pos;
+    }
+
+    void skipSpace() {
+        while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos))) {
+            ++this.pos;
+        }
+    }
+
+    IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException("bad JSON at " + this.pos + ": " + message);
+    }
+}
@@ -0,0 +1,198 @@
+package org.javatots.main;
+
+import org.javatots.jfr.WriteOutputEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write output files only when their contents change so that mtimes (and tsc --incremental, watchers, etc.) only see
+ * real changes. New contents go to a temp file in the same directory which is then renamed over the target.
+ */
+public class OutputWriter {
+    static final int COMPARE_BUFFER_SIZE = 8192;
+
+    final Charset charset;
+    final AtomicInteger written = new AtomicInteger();
+    final AtomicInteger unchanged = new AtomicInteger();
+
+    /**
+     * Something that writes a file's contents to a channel.
+     */
+    public interface ChannelWriter {
+        void write(WritableByteChannel channel) throws IOException;
+    }
+
+    /**
+     * @param charset encoding for String contents
+     */
+    public OutputWriter(final Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Write `contents` to `target` unless it's already there.
+     * @param target file to write
+     * @param contents new contents
+     * @return whether the file was written
+     * @throws IOException
+     */
+    public boolean write(final Path target, final String contents) throws IOException {
+        final WriteOutputEvent event = new WriteOutputEvent();
+        event.begin();
+        final byte[] bytes = contents.getBytes(this.charset);
+        Boolean wrote = null;
+        try {
+            wrote = this.write(target, bytes);
+            return wrote;
+        } finally {
+            commit(event, target, bytes.length, wrote);
+        }
+    }
+
+    protected boolean write(final Path target, final byte[] bytes) throws IOException {
+        if (Files.isRegularFile(target) && Files.size(target) == bytes.length && Arrays.equals(Files.readAllBytes(target), bytes)) {
+            this.unchanged.incrementAndGet();
+            return false;
+        }
+        final Path temp = createTempFor(target);
+        try {
+            Files.write(temp, bytes);
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        this.written.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Let `writer` write to a temp file and move that to `target` unless `target` already has the same contents.
+     * @param target file to write
+     * @param writer produces the new contents
+     * @return whether the file was written
+     * @throws IOException
+     */
+    public boolean write(final Path target, final ChannelWriter writer) throws IOException {
+        final WriteOutputEvent event = new WriteOutputEvent();
+        event.begin();
+        long bytes = 0;
+        Boolean wrote = null;
+        final Path temp = createTempFor(target);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.write(channel);
+                bytes = channel.size();
+            }
+            if (sameContents(temp, target)) {
+                this.unchanged.incrementAndGet();
+                wrote = false;
+            } else {
+                replace(temp, target);
+                this.written.incrementAndGet();
+                wrote = true;
+            }
+            return wrote;
+        } finally {
+            Files.deleteIfExists(temp);
+            commit(event, target, bytes, wrote);
+        }
+    }
+
+    /**
+     * Record a write with JFR if it's listening.
+     * @param wrote whether the file was written or null if writing failed
+     */
+    static void commit(final WriteOutputEvent event, final Path target, final long bytes, final Boolean wrote) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.outputFile = String.valueOf(target);
+            event.bytes = bytes;
+            event.outcome = wrote == null ? "failed" : wrote ? "written" : "unchanged";
+            event.commit();
+        }
+    }
+
+    public int getWritten() {
+        return this.written.get();
+    }
+
+    public int getUnchanged() {
+        return this.unchanged.get();
+    }
+
+    @Override
+    public String toString() {
+        return "wrote " + this.written + " files, " + this.unchanged + " unchanged";
+    }
+
+    /**
+     * Create an empty temp file next to `target` with the permissions `target` would get if written in place: those of
+     * an existing `target`, else the umask's. (Files.createTempFile would make it owner-only, and the move keeps that.)
+     */
+    protected static Path createTempFor(final Path target) throws IOException {
+        final Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        while (true) {
+            final Path temp = dir.resolve("." + target.getFileName() + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                Files.newByteChannel(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                if (Files.isRegularFile(target) && Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                    Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+                }
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            return temp;
+        }
+    }
+
+    protected static void replace(final Path temp, final Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (java.nio.file.AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Compare sizes first, then contents.
+     * @return whether `b` exists and has the same bytes as `a`
+     */
+    protected static boolean sameContents(final Path a, final Path b) throws IOException {
+        if (!Files.isRegularFile(b) || Files.size(a) != Files.size(b)) {
+            return false;
+        }
+        try (InputStream inA = Files.newInputStream(a); InputStream inB = Files.newInputStream(b)) {
+            final byte[] bufA = new byte[COMPARE_BUFFER_SIZE];
+            final byte[] bufB = new byte[COMPARE_BUFFER_SIZE];
+            while (true) {
+                final int readA = inA.readNBytes(bufA, 0, bufA.length);
+                final int readB = inB.readNBytes(bufB, 0, bufB.length);
+                if (readA != readB || !Arrays.equals(bufA, 0, readA, bufB, 0, readB)) {
+                    return false;
+                }
+                if (readA < bufA.length) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.javatots.main;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Names of the classes in each directory of a module's Java source, built once per module.
+ * The per-directory sets are immutable and shared by every file in that package.
+ */
+public class PackageIndex {
+    protected static final Path TOP_LEVEL = Path.of("");
+
+    final Path srcRoot;
+    final Map<Path, Set<String>> classNamesByDir;
+
+    /**
+     * Index files by their directory relative to `srcRoot`.
+     * @param srcRoot root of the Java source hierarchy
+     * @param files files under `srcRoot`, e.g. from Files.find
+     */
+    public PackageIndex(final Path srcRoot, final Path[] files) {
+        this.srcRoot = srcRoot;
+        final Map<Path, Set<String>> building = new HashMap<>();
+        for (Path filePath : files) {
+            building.computeIfAbsent(getDir(filePath), dir -> new HashSet<>()).add(getClassName(filePath));
+        }
+        final Map<Path, Set<String>> frozen = new HashMap<>();
+        for (Map.Entry<Path, Set<String>> entry : building.entrySet()) {
+            frozen.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        }
+        this.classNamesByDir = Collections.unmodifiableMap(frozen);
+    }
+
+    /**
+     * @param dir directory relative to srcRoot, e.g. `org/javatots/example`
+     * @return names of the classes in `dir`; empty if there are none.
+     */
+    public Set<String> getClassNames(final Path dir) {
+        return this.classNamesByDir.getOrDefault(dir, Collections.emptySet());
+    }
+
+    /**
+     * Get the other classes in the same directory as `filePath`.
+     * @param filePath file under srcRoot
+     * @return a view of the shared package set without `filePath`'s own class.
+     */
+    public Set<String> getSiblings(final Path filePath) {
+        return new SiblingSet(getClassNames(getDir(filePath)), getClassName(filePath));
+    }
+
+    protected Path getDir(final Path filePath) {
+        final Path dir = this.srcRoot.relativize(filePath).getParent();
+        return dir == null ? TOP_LEVEL : dir;
+    }
+
+    /**
+     * @param filePath path to a Java file
+     * @return file name without its extension
+     */
+    public static String getClassName(final Path filePath) {
+        String name = String.valueOf(filePath.getFileName());
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? name : name.substring(0, dot);
+    }
+
+    /**
+     * Immutable view of a package's classes minus one.
+     */
+    static class SiblingSet extends AbstractSet<String> {
+        final Set<String> packageClasses;
+        final String self;
+
+        SiblingSet(final Set<String> packageClasses, final String self) {
+            this.packageClasses = packageClasses;
+            this.self = self;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return !this.self.equals(o) && this.packageClasses.contains(o);
+        }
+
+        @Override
+        public int size() {
+            return this.packageClasses.contains(this.self) ? this.packageClasses.size() - 1 : this.packageClasses.size();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return this.packageClasses.stream().filter(s -> !this.self.equals(s)).iterator();
+        }
+    }
+}
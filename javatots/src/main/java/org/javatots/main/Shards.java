@@ -0,0 +1,153 @@
+package org.javatots.main;
+
+import com.github.javaparser.utils.Log;
+import org.javatots.config.JtsConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Split a run across processes with `--shard i/N` and put the pieces back together with `merge`.
+ * Every shard finds all the jobs, so sibling sets are the same as in an unsharded run, then takes its share: files are
+ * dealt largest first to whichever shard has the fewest bytes so far, which depends only on the files.
+ * A shard writes its manifest, dependency graph, timings and report next to where an unsharded run would, with `.shard-i-of-N`
+ * before the extension, and removes no orphaned outputs since it can't tell them from other shards' files.
+ * `merge` combines the pieces once all N are there, removes orphans and deletes the pieces.
+ */
+public class Shards {
+    static final Pattern SHARD = Pattern.compile("(\\d+)/(\\d+)");
+
+    final int index; // 1-based
+    final int count;
+
+    /**
+     * @param shard i/N with 1 <= i <= N
+     */
+    public Shards(final String shard) {
+        final Matcher m = SHARD.matcher(shard);
+        if (!m.matches() || Integer.parseInt(m.group(1)) < 1 || Integer.parseInt(m.group(1)) > Integer.parseInt(m.group(2))) {
+            throw new IllegalArgumentException("expected a shard like 2/4 but got " + shard);
+        }
+        this.index = Integer.parseInt(m.group(1));
+        this.count = Integer.parseInt(m.group(2));
+    }
+
+    /**
+     * @param jobs every job in the configuration
+     * @return this shard's jobs, in their original order
+     */
+    public List<TranslationJob> select(final List<TranslationJob> jobs) {
+        final Map<TranslationJob, Long> sizes = new IdentityHashMap<>();
+        for (TranslationJob job : jobs) {
+            sizes.put(job, WorkScheduler.sizeOf(job));
+        }
+        final List<TranslationJob> largestFirst = new ArrayList<>(jobs);
+        largestFirst.sort(Comparator.comparing((TranslationJob job) -> sizes.get(job)).reversed()
+                .thenComparing(job -> job.sourceFileName));
+        final long[] loads = new long[this.count];
+        final Set<TranslationJob> mine = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TranslationJob job : largestFirst) {
+            int lightest = 0;
+            for (int i = 1; i < this.count; ++i) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            loads[lightest] += sizes.get(job);
+            if (lightest == this.index - 1) {
+                mine.add(job);
+            }
+        }
+        final List<TranslationJob> ret = jobs.stream().filter(mine::contains).collect(Collectors.toList());
+        Log.info("Shard " + this + ": " + ret.size() + " of " + jobs.size() + " files, " + loads[this.index - 1] + " bytes");
+        return ret;
+    }
+
+    /**
+     * @param path e.g. out/.javatots-manifest.yaml
+     * @return e.g. out/.javatots-manifest.shard-2-of-4.yaml
+     */
+    public String partial(final String path) {
+        return JavaToTypescript.withSuffix(path, ".shard-" + this.index + "-of-" + this.count);
+    }
+
+    /**
+     * Find the pieces of `path` left by the shards of a run.
+     * @param path the unsharded file
+     * @return the pieces in shard order; empty if there are none
+     * @throws IllegalStateException if some shards' pieces are missing or they're from different runs
+     */
+    public static List<Path> findPartials(final Path path) throws IOException {
+        final Path dir = path.toAbsolutePath().getParent();
+        final String name = String.valueOf(path.getFileName());
+        final int dot = name.lastIndexOf('.');
+        final String stem = dot > 0 ? name.substring(0, dot) : name;
+        final String extension = dot > 0 ? name.substring(dot) : "";
+        final Pattern partialName = Pattern.compile(Pattern.quote(stem) + "\\.shard-(\\d+)-of-(\\d+)" + Pattern.quote(extension));
+        final SortedMap<Integer, Path> found = new TreeMap<>();
+        final Set<Integer> counts = new TreeSet<>();
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    final Matcher m = partialName.matcher(String.valueOf(file.getFileName()));
+                    if (m.matches()) {
+                        found.put(Integer.parseInt(m.group(1)), file);
+                        counts.add(Integer.parseInt(m.group(2)));
+                    }
+                }
+            }
+        }
+        if (found.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (counts.size() != 1 || found.size() != counts.iterator().next() || found.firstKey() != 1) {
+            throw new IllegalStateException("incomplete or mixed shards of " + path + ": " + found.values());
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * Combine what the shards of a run with `config` left: manifests, dependency graphs, timings and reports.
+     * @param config the configuration the shards ran with, minus `shard`
+     */
+    public static void merge(final JtsConfig config) throws IOException {
+        final List<Path> manifests = findPartials(Path.of(config.outputDirectory, TranslationManifest.FILE_NAME));
+        if (!manifests.isEmpty()) {
+            TranslationManifest.merge(config, manifests).save(config.outputDirectory);
+            deleteAll(manifests);
+        }
+        final List<Path> graphs = findPartials(Path.of(config.outputDirectory, DependencyGraph.FILE_NAME));
+        if (!graphs.isEmpty()) {
+            DependencyGraph.merge(graphs).save(config.outputDirectory);
+            deleteAll(graphs);
+        }
+        final List<Path> timings = findPartials(Path.of(config.outputDirectory, FileTimings.FILE_NAME));
+        if (!timings.isEmpty()) {
+            FileTimings.merge(timings).save(config.outputDirectory, FileTimings.FILE_NAME);
+            deleteAll(timings);
+        }
+        final List<Path> reports = config.report == null ? Collections.emptyList() : findPartials(Path.of(config.report));
+        if (!reports.isEmpty()) {
+            TranslationReport.merge(reports).write(Path.of(config.report), config.reportTopFiles);
+            deleteAll(reports);
+        }
+        Log.info("Merged " + manifests.size() + " manifests, " + graphs.size() + " dependency graphs, " + timings.size() + " timings and " + reports.size() + " reports");
+    }
+
+    static void deleteAll(final List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.index + "/" + this.count;
+    }
+}
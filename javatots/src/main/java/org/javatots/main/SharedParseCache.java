@@ -0,0 +1,117 @@
+package org.javatots.main;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Parse each source file once for several translations of it, e.g. by configs in a BatchRun sharing an inputDirectory.
+ * Every translation announces the files it will parse by opening a Session before any of them run. The first to
+ * parse a file keeps a pristine copy and works on a clone, since translation modifies the AST; the last one gets the
+ * pristine copy itself, so files used once are never cloned or kept.
+ */
+public class SharedParseCache {
+    protected static class Entry {
+        int remaining; // announced uses not yet made
+        CompilationUnit cu; // pristine; null until first parsed
+    }
+
+    protected final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    protected final AtomicInteger parsed = new AtomicInteger();
+    protected final AtomicInteger reused = new AtomicInteger();
+
+    /**
+     * Announce the files one translation will parse.
+     * @param keys identify a file and how it's parsed; see JavaToTypescript.getParseKey
+     * @return the session to parse through, closed after the translation
+     */
+    public Session open(final Collection<String> keys) {
+        final Set<String> pending = ConcurrentHashMap.newKeySet();
+        for (String key : keys) {
+            if (pending.add(key)) {
+                final Entry entry = this.entries.computeIfAbsent(key, k -> new Entry());
+                synchronized (entry) {
+                    ++entry.remaining;
+                }
+            }
+        }
+        return new Session(pending);
+    }
+
+    /**
+     * Give up one announced use of `key`, dropping the pristine copy if it was the last.
+     * @return the pristine copy if nobody else wants it, else null
+     */
+    protected CompilationUnit release(final String key, final Entry entry) {
+        if (--entry.remaining > 0) {
+            return null;
+        }
+        this.entries.remove(key);
+        final CompilationUnit cu = entry.cu;
+        entry.cu = null;
+        return cu;
+    }
+
+    @Override
+    public String toString() {
+        return this.parsed.get() + " files parsed, " + this.reused.get() + " reused";
+    }
+
+    /**
+     * One translation's view of the cache.
+     */
+    public class Session implements Closeable {
+        protected final Set<String> pending;
+
+        protected Session(final Set<String> pending) {
+            this.pending = pending;
+        }
+
+        /**
+         * @param key as announced
+         * @param parser parses the file; called if no other session has yet
+         * @return an AST this caller may modify
+         */
+        public CompilationUnit parse(final String key, final Supplier<CompilationUnit> parser) {
+            if (!this.pending.remove(key)) {
+                return parser.get(); // not announced, or asked for twice
+            }
+            final Entry entry = SharedParseCache.this.entries.get(key);
+            synchronized (entry) {
+                if (entry.cu == null) {
+                    try {
+                        entry.cu = parser.get();
+                    } catch (RuntimeException | Error e) {
+                        release(key, entry); // the next session tries again
+                        throw e;
+                    }
+                    SharedParseCache.this.parsed.incrementAndGet();
+                } else {
+                    SharedParseCache.this.reused.incrementAndGet();
+                }
+                final CompilationUnit last = release(key, entry);
+                return last != null ? last : entry.cu.clone();
+            }
+        }
+
+        /**
+         * Release files this session announced but didn't parse, e.g. ones an incremental run skipped.
+         */
+        @Override
+        public void close() {
+            for (String key : this.pending) {
+                final Entry entry = SharedParseCache.this.entries.get(key);
+                synchronized (entry) {
+                    release(key, entry);
+                }
+            }
+            this.pending.clear();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.javatots.main;
+
+import com.github.javaparser.printer.SourcePrinter;
+import com.github.javaparser.utils.Log;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reach the buffer a SourcePrinter prints into so streamed output can be written out and dropped as it's printed.
+ * SourcePrinter has no public way to do that and only ever appends to the buffer, so it's safe to empty it.
+ * This relies on the private field `buf`; if a JavaParser release renames it or the module system denies access,
+ * `find` returns null and callers keep the output in memory until the end instead.
+ */
+final class SourcePrinterBuffer {
+    static final String FIELD_NAME = "buf";
+
+    private static volatile boolean lookedUp = false;
+    private static volatile Field field = null;
+
+    private SourcePrinterBuffer() {
+    }
+
+    /**
+     * @param printer the printer to reach into
+     * @return the buffer `printer` appends to or null if it can't be reached
+     */
+    static StringBuilder find(final SourcePrinter printer) {
+        final Field field = getField();
+        if (field == null) {
+            return null;
+        }
+        try {
+            return (StringBuilder) field.get(printer);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Field getField() {
+        if (!lookedUp) {
+            synchronized (SourcePrinterBuffer.class) {
+                if (!lookedUp) {
+                    try {
+                        final Field found = SourcePrinter.class.getDeclaredField(FIELD_NAME);
+                        if (found.getType() != StringBuilder.class) {
+                            throw new NoSuchFieldException(FIELD_NAME + " is a " + found.getType().getName());
+                        }
+                        found.setAccessible(true);
+                        field = found;
+                    } catch (NoSuchFieldException | RuntimeException e) {
+                        Log.info("Can't stream from JavaParser's SourcePrinter, keeping each file in memory instead: " + e);
+                    }
+                    lookedUp = true;
+                }
+            }
+        }
+        return field;
+    }
+}
@@ -0,0 +1,192 @@
+package org.javatots.main;
+
+import com.github.javaparser.utils.Log;
+import com.github.javaparser.utils.SourceRoot;
+import org.javatots.config.JtsConfig;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Translate files on request in one long-lived JVM so that class loading, JIT warm-up and config loading are paid
+ * once. Requests are JSON objects, one per line; each gets a one-line JSON response with the same "id":
+ *   {"id": 1, "command": "translate", "files": ["customer-db/src/main/java/org/example/Customer.java"]}
+ *   {"id": 1, "ok": true, "results": [{"file": "...", "output": "out/.../Customer.ts", "outcome": "written"}], "millis": 4}
+ * Commands:
+ *   translate  translate "files" (absolute or relative to inputDirectory); with "write": false the Typescript is
+ *              returned in each result's "typescript" instead of being written
+ *   translateAll  walkModules over the whole config
+ *   ping
+ *   shutdown
+ * Failures give "ok": false and an "error"; a file which fails to translate gets an "error" in its result.
+ * The config is reloaded when its file's modification time changes. Files are always parsed outside the SourceRoot
+ * cache so edits between requests are seen.
+ */
+public class TranslationDaemon {
+    final Path configPath;
+    final Consumer<JtsConfig> overrides;
+    FileTime configModified;
+    JavaToTypescript translator;
+    SourceRoot sourceRoot;
+    boolean running = true;
+
+    /**
+     * Log to stderr since stdout carries responses.
+     */
+    public static class StandardErrorAdapter implements Log.Adapter {
+        @Override
+        public void info(final Supplier<String> message) {
+            System.err.println(message.get());
+        }
+
+        @Override
+        public void trace(final Supplier<String> message) {
+        }
+
+        @Override
+        public void error(final Supplier<Throwable> throwableSupplier, final Supplier<String> messageSupplier) {
+            final String message = messageSupplier.get();
+            if (message != null) {
+                System.err.println(message);
+            }
+            final Throwable throwable = throwableSupplier.get();
+            if (throwable != null) {
+                throwable.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @param configPath YAML config, reloaded when it changes
+     * @param overrides command line settings to apply to each loaded config
+     * @throws IOException if the config can't be loaded
+     */
+    public TranslationDaemon(final Path configPath, final Consumer<JtsConfig> overrides) throws IOException {
+        this.configPath = configPath;
+        this.overrides = overrides;
+        this.loadConfigIfChanged();
+    }
+
+    /**
+     * Answer requests until `in` ends or a shutdown request.
+     */
+    public void serve(final InputStream in, final PrintStream out) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Log.info("Ready for requests");
+        String line;
+        while (this.running && (line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            out.println(Json.write(this.handle(line)));
+            out.flush();
+        }
+    }
+
+    /**
+     * @param line a JSON request
+     * @return the response
+     */
+    public Map<String, Object> handle(final String line) {
+        final long start = System.nanoTime();
+        final Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", null);
+        response.put("ok", false);
+        try {
+            final Object parsed = Json.parse(line);
+            if (!(parsed instanceof Map)) {
+                throw new IllegalArgumentException("request must be a JSON object");
+            }
+            final Map<?, ?> request = (Map<?, ?>) parsed;
+            response.put("id", request.get("id"));
+            if (this.loadConfigIfChanged()) {
+                response.put("configReloaded", true);
+            }
+            final Object command = request.containsKey("command") ? request.get("command") : "translate";
+            if ("translate".equals(command)) {
+                response.put("results", this.translateFiles(expectStrings(request.get("files")), !Boolean.FALSE.equals(request.get("write"))));
+            } else if ("translateAll".equals(command)) {
+                // the counters run for the life of the translator, so report just this request's share
+                final OutputWriter outputWriter = this.translator.outputWriter;
+                final int written = outputWriter.getWritten();
+                final int unchanged = outputWriter.getUnchanged();
+                this.translator.walkModules(this.sourceRoot);
+                response.put("output", "wrote " + (outputWriter.getWritten() - written) + " files, "
+                        + (outputWriter.getUnchanged() - unchanged) + " unchanged");
+            } else if ("ping".equals(command)) {
+                // nothing to do
+            } else if ("shutdown".equals(command)) {
+                this.running = false;
+            } else {
+                throw new IllegalArgumentException("unknown command: " + command);
+            }
+            response.put("ok", true);
+        } catch (IOException | RuntimeException e) {
+            response.put("error", String.valueOf(e));
+        }
+        response.put("millis", (System.nanoTime() - start) / 1_000_000);
+        return response;
+    }
+
+    protected List<Map<String, Object>> translateFiles(final List<String> files, final boolean write) {
+        final List<Map<String, Object>> results = new ArrayList<>();
+        for (String file : files) {
+            final Map<String, Object> result = new LinkedHashMap<>();
+            result.put("file", file);
+            try {
+                final TranslationJob job = this.translator.findJob(Path.of(file));
+                result.put("output", String.valueOf(job.tsFilePath));
+                if (write) {
+                    result.put("outcome", this.translator.translate(this.sourceRoot, job, null) ? "written" : "unchanged");
+                } else {
+                    result.put("typescript", this.translator.transformFile(this.sourceRoot, job.sourceFileName, job.siblings, job.moduleMap, job.packageMap));
+                }
+            } catch (IOException | RuntimeException e) {
+                result.put("error", String.valueOf(e));
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * (Re)load the config if its file changed since it was last loaded.
+     * @return whether a previously loaded config was replaced
+     * @throws IOException
+     */
+    protected boolean loadConfigIfChanged() throws IOException {
+        final FileTime modified = Files.getLastModifiedTime(this.configPath);
+        if (this.translator != null && modified.equals(this.configModified)) {
+            return false;
+        }
+        final JtsConfig config = JavaToTypescript.loadConfig(String.valueOf(this.configPath));
+        this.overrides.accept(config);
+        config.boundedMemory = true; // the SourceRoot cache would hide edits
+        final boolean reloaded = this.translator != null;
+        this.translator = new JavaToTypescript(config);
+        this.sourceRoot = new SourceRoot(Path.of(config.inputDirectory));
+        this.configModified = modified;
+        Log.info((reloaded ? "Reloaded" : "Loaded") + " YAML configuration from: " + this.configPath);
+        return reloaded;
+    }
+
+    static List<String> expectStrings(final Object value) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("expected a list of files");
+        }
+        final List<String> ret = new ArrayList<>();
+        for (Object element : (List<?>) value) {
+            if (!(element instanceof String)) {
+                throw new IllegalArgumentException("expected a file name but got " + element);
+            }
+            ret.add((String) element);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,38 @@
+package org.javatots.main;
+
+import org.javatots.config.ModuleMap;
+import org.javatots.config.PackageMap;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Everything needed to translate one Java file, computed before any translation starts.
+ */
+public class TranslationJob {
+    public final String javaModuleName;
+    public final ModuleMap moduleMap;
+    public final PackageMap packageMap;
+    public final String javaFilepath;
+    public final String sourceFileName;
+    public final Path tsFilePath;
+    public final Set<String> siblings;
+
+    public TranslationJob(final String javaModuleName, final ModuleMap moduleMap, final PackageMap packageMap, final String javaFilepath, final String sourceFileName, final Path tsFilePath, final Set<String> siblings) {
+        this.javaModuleName = javaModuleName;
+        this.moduleMap = moduleMap;
+        this.packageMap = packageMap;
+        this.javaFilepath = javaFilepath;
+        this.sourceFileName = sourceFileName;
+        this.tsFilePath = tsFilePath;
+        this.siblings = siblings;
+    }
+
+    @Override
+    public String toString() {
+        return "TranslationJob{" +
+                "javaFilepath='" + javaFilepath + '\'' +
+                ", tsFilePath=" + tsFilePath +
+                '}';
+    }
+}
@@ -0,0 +1,280 @@
+package org.javatots.main;
+
+import com.github.javaparser.printer.DefaultPrettyPrinterVisitor;
+import com.github.javaparser.utils.Log;
+import org.javatots.config.JtsConfig;
+import org.javatots.config.ModuleMap;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Record of the inputs that produced each Typescript file, kept in the outputDirectory between runs so that
+ * incremental runs only re-translate files whose inputs changed.
+ */
+public class TranslationManifest {
+    public static final String FILE_NAME = ".javatots-manifest.yaml";
+
+    private static volatile String codeHash = null; // see getCodeHash
+
+    // hash of the config and translator code; when it changes, every file is re-translated.
+    public String configHash;
+    // Typescript path (relative to outputDirectory) -> inputs that produced it
+    public Map<String, Entry> outputs = new TreeMap<>();
+
+    /**
+     * Inputs of one translated file.
+     */
+    public static class Entry {
+        public String source; // Java path relative to the module's srcRoot
+        public String hash; // hash of source contents and package siblings
+
+        public Entry() {
+        }
+
+        public Entry(final String source, final String hash) {
+            this.source = source;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Read the manifest left by a previous run.
+     * @param outputDirectory where the manifest lives
+     * @return the previous manifest or an empty one if there was none or it couldn't be read.
+     */
+    public static TranslationManifest load(final String outputDirectory) {
+        final Path manifestPath = Path.of(outputDirectory, FILE_NAME);
+        if (!Files.isRegularFile(manifestPath)) {
+            return new TranslationManifest();
+        }
+        try (InputStream inputStream = Files.newInputStream(manifestPath)) {
+            final TranslationManifest ret = new Yaml().loadAs(inputStream, TranslationManifest.class);
+            return ret == null ? new TranslationManifest() : ret;
+        } catch (IOException | RuntimeException e) {
+            Log.info("Ignoring unreadable manifest " + manifestPath + ": " + e.getMessage());
+            return new TranslationManifest();
+        }
+    }
+
+    public void save(final String outputDirectory) throws IOException {
+        this.save(outputDirectory, FILE_NAME);
+    }
+
+    /**
+     * @param fileName e.g. a shard's piece of the manifest
+     */
+    public void save(final String outputDirectory, final String fileName) throws IOException {
+        final Path manifestPath = Path.of(outputDirectory, fileName);
+        Files.createDirectories(manifestPath.getParent());
+        try (Writer writer = Files.newBufferedWriter(manifestPath)) {
+            new Yaml().dump(this, writer);
+        }
+    }
+
+    /**
+     * Figure out which jobs need to run, record all of them in this manifest and delete outputs that no job produces anymore.
+     * @param previous manifest from the last run
+     * @param config current configuration
+     * @param jobs every file found in the current configuration
+     * @return the jobs whose inputs differ from the previous run, or whose output is missing.
+     * @throws IOException
+     */
+    public List<TranslationJob> update(final TranslationManifest previous, final JtsConfig config, final List<TranslationJob> jobs) throws IOException {
+        return this.update(previous, config, jobs, true);
+    }
+
+    /**
+     * Like update above.
+     * @param removeOrphans false if `jobs` are only some of the files, e.g. one shard's
+     */
+    public List<TranslationJob> update(final TranslationManifest previous, final JtsConfig config, final List<TranslationJob> jobs, final boolean removeOrphans) throws IOException {
+        this.configHash = hashConfig(config);
+        final boolean sameConfig = this.configHash.equals(previous.configHash);
+        final List<TranslationJob> changed = new ArrayList<>();
+        for (TranslationJob job : jobs) {
+            final String outputName = getOutputName(config, job);
+            final Entry entry = new Entry(job.javaFilepath, hashInputs(job));
+            this.outputs.put(outputName, entry);
+            final Entry old = previous.outputs.get(outputName);
+            if (!sameConfig || old == null || !entry.hash.equals(old.hash) || !Files.exists(job.tsFilePath)) {
+                changed.add(job);
+            }
+        }
+
+        // Remove outputs of deleted sources (or of sources that moved to a different output).
+        final int orphans = removeOrphans ? this.removeOrphans(previous, config) : 0;
+        Log.info("Incremental: " + changed.size() + " of " + jobs.size() + " files changed, " + orphans + " orphaned outputs removed");
+        return changed;
+    }
+
+    /**
+     * Delete outputs in `previous` that this manifest doesn't have.
+     * @return how many
+     */
+    protected int removeOrphans(final TranslationManifest previous, final JtsConfig config) throws IOException {
+        int orphans = 0;
+        for (String outputName : previous.outputs.keySet()) {
+            if (!this.outputs.containsKey(outputName)) {
+                Files.deleteIfExists(Path.of(config.outputDirectory, outputName));
+                ++orphans;
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * Combine the manifests of all shards of a run and remove outputs that the last whole run made and none of the
+     * shards did.
+     * @param config current configuration
+     * @param partials each shard's manifest
+     * @return the manifest of the whole run
+     */
+    public static TranslationManifest merge(final JtsConfig config, final List<Path> partials) throws IOException {
+        final TranslationManifest merged = new TranslationManifest();
+        for (Path partial : partials) {
+            final TranslationManifest shard;
+            try (InputStream inputStream = Files.newInputStream(partial)) {
+                shard = new Yaml().loadAs(inputStream, TranslationManifest.class);
+            }
+            if (merged.configHash != null && !merged.configHash.equals(shard.configHash)) {
+                throw new IllegalStateException(partial + " was made with a different config or translator than " + partials.get(0));
+            }
+            merged.configHash = shard.configHash;
+            merged.outputs.putAll(shard.outputs);
+        }
+        final int orphans = merged.removeOrphans(load(config.outputDirectory), config);
+        Log.info("Merged manifest: " + merged.outputs.size() + " outputs, " + orphans + " orphaned outputs removed");
+        return merged;
+    }
+
+    protected static String getOutputName(final JtsConfig config, final TranslationJob job) {
+        return String.valueOf(Path.of(config.outputDirectory).relativize(job.tsFilePath));
+    }
+
+    /**
+     * Hash everything that determines the contents of a single output file.
+     * @param job file to translate
+     * @return hex digest of path, sorted siblings and source bytes.
+     * @throws IOException
+     */
+    protected static String hashInputs(final TranslationJob job) throws IOException {
+        final MessageDigest digest = newDigest();
+        digest.update((job.javaFilepath + '\n' + String.join(",", new TreeSet<>(job.siblings)) + '\n').getBytes(StandardCharsets.UTF_8));
+        digest.update(Files.readAllBytes(Path.of(job.sourceFileName)));
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Hash the parts of the config which affect output, the import handlers and the code of the translator itself.
+     * @param config current configuration
+     * @return hex digest
+     */
+    protected static String hashConfig(final JtsConfig config) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(config.inputDirectory).append('\n')
+                .append(config.outputDirectory).append('\n')
+                .append(config.packageTemplate).append('\n')
+                .append(config.indentation).append('\n')
+                .append(config.unknownImportTemplate).append('\n')
+                .append(config.commentThrows).append('\n')
+                .append(config.unknownAnnotations).append('\n')
+                .append(config.declarationsOnly).append('\n');
+        for (Map.Entry<String, ModuleMap> moduleMapEntry : config.moduleMaps.entrySet()) {
+            sb.append(moduleMapEntry.getKey()).append(": ").append(moduleMapEntry.getValue()).append('\n');
+        }
+        // transformers named by import handlers may come from outside the translator's code
+        final Set<String> handlerClasses = new TreeSet<>();
+        for (ImportHandler handler : JavaToTypescript.IMPORT_HANDLERS) {
+            sb.append(handler.packageName).append('.').append(handler.className).append(" -> ").append(handler.transformerClass);
+            for (TypescriptImport typescriptImport : handler.typescriptImports) {
+                sb.append(' ').append(typescriptImport.importName).append(typescriptImport.importIsStatic).append(typescriptImport.importIsAsterisk);
+            }
+            sb.append('\n');
+            if (handler.transformerClass != null) {
+                handlerClasses.add(handler.transformerClass);
+            }
+        }
+
+        final MessageDigest digest = newDigest();
+        digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(getCodeHash().getBytes(StandardCharsets.UTF_8));
+        for (String className : handlerClasses) {
+            final String resource = '/' + className.replace('.', '/') + ".class";
+            try (InputStream inputStream = TranslationManifest.class.getResourceAsStream(resource)) {
+                if (inputStream != null) {
+                    digest.update(inputStream.readAllBytes());
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Hash all the code that shapes the output, so a rebuilt translator or a different JavaParser invalidates old
+     * output: the jar or class directory holding the translator and the one holding JavaParser's printer, which are
+     * the same jar in the shaded build. Computed once per JVM.
+     * @return hex digest
+     */
+    protected static String getCodeHash() throws IOException {
+        String codeHash = TranslationManifest.codeHash;
+        if (codeHash == null) {
+            final MessageDigest digest = newDigest();
+            final Set<Path> codeSources = new LinkedHashSet<>();
+            for (Class<?> clazz : List.of(TranslationManifest.class, DefaultPrettyPrinterVisitor.class)) {
+                final CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+                if (codeSource == null) {
+                    throw new IllegalStateException("can't find the code of " + clazz.getName() + " to hash");
+                }
+                try {
+                    codeSources.add(Path.of(codeSource.getLocation().toURI()));
+                } catch (URISyntaxException e) {
+                    throw new IllegalStateException("can't find the code of " + clazz.getName() + " to hash", e);
+                }
+            }
+            for (Path codeSource : codeSources) {
+                if (Files.isDirectory(codeSource)) {
+                    // e.g. target/classes; sorted so the hash doesn't depend on directory order
+                    final List<Path> classFiles;
+                    try (Stream<Path> files = Files.walk(codeSource)) {
+                        classFiles = files.filter(file -> String.valueOf(file.getFileName()).endsWith(".class")).sorted().collect(Collectors.toList());
+                    }
+                    for (Path classFile : classFiles) {
+                        digest.update(String.valueOf(codeSource.relativize(classFile)).getBytes(StandardCharsets.UTF_8));
+                        digest.update(Files.readAllBytes(classFile));
+                    }
+                } else {
+                    digest.update(Files.readAllBytes(codeSource));
+                }
+            }
+            codeHash = TranslationManifest.codeHash = toHex(digest.digest());
+        }
+        return codeHash;
+    }
+
+    protected static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    protected static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,417 @@
+package org.javatots.main;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.utils.Log;
+import com.github.javaparser.utils.SourceRoot;
+import org.javatots.jfr.TranslateFileEvent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Translate jobs in three stages connected by bounded queues so reading, transforming and writing overlap:
+ * prefetching readers -> transform workers (parse, pre-process, print) -> a write-behind writer.
+ * Each stage records how long its threads were busy, starved (waiting for input) and blocked (waiting for room
+ * downstream) so the bottleneck shows up in the log and the report.
+ * The I/O stages run on virtual threads when the runtime has them (Java 21+) and on a few platform threads otherwise;
+ * transformers are CPU-bound so they stay platform threads, one per worker.
+ * A thread which fails outside a file's own translation stops the run: the other threads are interrupted and `run`
+ * throws that failure.
+ */
+public class TranslationPipeline {
+    public static final int READERS = 2;
+    public static final int WRITERS = 1;
+    public static final int QUEUE_CAPACITY_PER_WORKER = 4;
+
+    // (name, body) -> Thread.ofVirtual().name(name).unstarted(body), or null before Java 21
+    static final MethodHandle NEW_VIRTUAL_THREAD = findVirtualThreadFactory();
+
+    final JavaToTypescript translator;
+    final SourceRoot sourceRoot;
+    final TranslationReport report;
+    final int transformers;
+
+    /**
+     * A file on its way through the pipeline; null fields are filled in by later stages.
+     */
+    static class Item {
+        final int index;
+        final TranslationJob job;
+        final TranslationReport.FileMetrics metrics;
+        final TranslateFileEvent event = new TranslateFileEvent();
+        String source;
+        String typescript;
+        Throwable failure;
+        long nanos; // spent on this file in all stages
+
+        Item(final int index, final TranslationJob job, final boolean collectMetrics) {
+            this.index = index;
+            this.job = job;
+            // JFR wants the node count, which FileMetrics collects.
+            this.metrics = job != null && (collectMetrics || this.event.isEnabled()) ? new TranslationReport.FileMetrics(job.javaFilepath, job.javaModuleName) : null;
+        }
+    }
+
+    // marks the end of a queue's input; one per consumer
+    static final Item END = new Item(-1, null, false);
+
+    /**
+     * Time spent by a stage's threads.
+     */
+    static class Stage {
+        final String name;
+        final int threads;
+        final LongAdder busyNanos = new LongAdder();
+        final LongAdder starvedNanos = new LongAdder();
+        final LongAdder blockedNanos = new LongAdder();
+        final LongAdder items = new LongAdder();
+
+        Stage(final String name, final int threads) {
+            this.name = name;
+            this.threads = threads;
+        }
+
+        Map<String, Object> toMap(final long wallNanos) {
+            final double threadNanos = (double) wallNanos * this.threads;
+            final Map<String, Object> ret = new LinkedHashMap<>();
+            ret.put("threads", this.threads);
+            ret.put("files", this.items.sum());
+            ret.put("busy", percent(this.busyNanos.sum(), threadNanos));
+            ret.put("starved", percent(this.starvedNanos.sum(), threadNanos));
+            ret.put("blocked", percent(this.blockedNanos.sum(), threadNanos));
+            return ret;
+        }
+    }
+
+    /**
+     * A bounded queue which samples its depth on every put.
+     */
+    static class StageQueue {
+        final String name;
+        final BlockingQueue<Item> queue;
+        final int capacity;
+        final LongAdder depthSum = new LongAdder();
+        final LongAdder puts = new LongAdder();
+
+        StageQueue(final String name, final int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        void put(final Item item, final Stage from) throws InterruptedException {
+            this.depthSum.add(this.queue.size());
+            this.puts.increment();
+            final long start = System.nanoTime();
+            this.queue.put(item);
+            from.blockedNanos.add(System.nanoTime() - start);
+        }
+
+        Item take(final Stage to) throws InterruptedException {
+            final long start = System.nanoTime();
+            final Item item = this.queue.take();
+            to.starvedNanos.add(System.nanoTime() - start);
+            return item;
+        }
+
+        Map<String, Object> toMap() {
+            final long puts = this.puts.sum();
+            final Map<String, Object> ret = new LinkedHashMap<>();
+            ret.put("capacity", this.capacity);
+            ret.put("meanDepth", puts == 0 ? 0.0 : Math.round(this.depthSum.sum() * 10.0 / puts) / 10.0);
+            return ret;
+        }
+    }
+
+    public TranslationPipeline(final JavaToTypescript translator, final SourceRoot sourceRoot, final TranslationReport report, final int transformers) {
+        this.translator = translator;
+        this.sourceRoot = sourceRoot;
+        this.report = report;
+        this.transformers = transformers;
+    }
+
+    /**
+     * Translate `jobs`, returning once everything is written.
+     * @param scheduler the order to read `jobs` in, told as each is written
+     * @throws IOException the first failure, in job order
+     */
+    public void run(final List<TranslationJob> jobs, final WorkScheduler scheduler) throws IOException {
+        final int[] order = scheduler.getOrder();
+        final Stage read = new Stage("read", READERS);
+        final Stage transform = new Stage("transform", this.transformers);
+        final Stage write = new Stage("write", WRITERS);
+        final StageQueue toTransform = new StageQueue("read->transform", QUEUE_CAPACITY_PER_WORKER * this.transformers);
+        final StageQueue toWrite = new StageQueue("transform->write", QUEUE_CAPACITY_PER_WORKER * this.transformers);
+        final AtomicInteger nextJob = new AtomicInteger();
+        final AtomicInteger readersLeft = new AtomicInteger(READERS);
+        final AtomicInteger transformersLeft = new AtomicInteger(this.transformers);
+        final List<Item> failures = Collections.synchronizedList(new ArrayList<>());
+        final AtomicReference<Throwable> stageFailure = new AtomicReference<>();
+        final ParserConfiguration parserConfiguration = this.sourceRoot.getParserConfiguration();
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; ++i) {
+            threads.add(newIoThread(() -> this.runStage(read, stageFailure, threads, () -> {
+                try {
+                    int next;
+                    while ((next = nextJob.getAndIncrement()) < order.length) {
+                        final long start = System.nanoTime();
+                        final Item item = this.read(new Item(order[next], jobs.get(order[next]), this.report != null), parserConfiguration);
+                        final long nanos = System.nanoTime() - start;
+                        item.nanos += nanos;
+                        read.busyNanos.add(nanos);
+                        read.items.increment();
+                        toTransform.put(item, read);
+                    }
+                } finally {
+                    // once the run's aborted nothing may be left to take them
+                    if (readersLeft.decrementAndGet() == 0 && stageFailure.get() == null) {
+                        for (int t = 0; t < this.transformers; ++t) {
+                            toTransform.put(END, read);
+                        }
+                    }
+                }
+            }), "javatots-read-" + i));
+        }
+        for (int i = 0; i < this.transformers; ++i) {
+            threads.add(new Thread(() -> this.runStage(transform, stageFailure, threads, () -> {
+                try {
+                    final JavaParser parser = new JavaParser(parserConfiguration);
+                    Item item;
+                    while ((item = toTransform.take(transform)) != END) {
+                        final long start = System.nanoTime();
+                        this.transform(item, parser, parserConfiguration);
+                        final long nanos = System.nanoTime() - start;
+                        item.nanos += nanos;
+                        transform.busyNanos.add(nanos);
+                        transform.items.increment();
+                        toWrite.put(item, transform);
+                    }
+                } finally {
+                    if (transformersLeft.decrementAndGet() == 0 && stageFailure.get() == null) {
+                        toWrite.put(END, transform);
+                    }
+                }
+            }), "javatots-transform-" + i));
+        }
+        threads.add(newIoThread(() -> this.runStage(write, stageFailure, threads, () -> {
+            Item item;
+            while ((item = toWrite.take(write)) != END) {
+                final long start = System.nanoTime();
+                this.write(item);
+                final long nanos = System.nanoTime() - start;
+                item.nanos += nanos;
+                write.busyNanos.add(nanos);
+                write.items.increment();
+                if (item.failure != null) {
+                    failures.add(item);
+                    scheduler.failed(item.index);
+                } else {
+                    scheduler.completed(item.index, item.nanos);
+                }
+            }
+        }), "javatots-write"));
+
+        final long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            stageFailure.compareAndSet(null, e);
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while translating");
+        }
+        final long wallNanos = System.nanoTime() - start;
+
+        final Map<String, Object> occupancy = new LinkedHashMap<>();
+        for (Stage stage : List.of(read, transform, write)) {
+            occupancy.put(stage.name, stage.toMap(wallNanos));
+        }
+        for (StageQueue queue : List.of(toTransform, toWrite)) {
+            occupancy.put(queue.name, queue.toMap());
+        }
+        Log.info("Pipeline: " + Json.write(occupancy));
+        if (this.report != null) {
+            this.report.setPipeline(occupancy);
+        }
+
+        if (stageFailure.get() != null) {
+            rethrow(stageFailure.get());
+        }
+        if (!failures.isEmpty()) {
+            rethrow(failures.stream().min(Comparator.comparingInt(item -> item.index)).get().failure);
+        }
+    }
+
+    static void rethrow(final Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    interface StageBody {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Run a stage's loop. Per-file failures are carried by the items; anything else is kept in `stageFailure`, if it's
+     * the first, and interrupts the other `threads` since the stages downstream of this one may never see their END.
+     */
+    void runStage(final Stage stage, final AtomicReference<Throwable> stageFailure, final List<Thread> threads, final StageBody body) {
+        try {
+            body.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            if (stageFailure.compareAndSet(null, t)) {
+                Log.error(t, "Pipeline " + stage.name + " stage failed");
+                for (Thread thread : threads) {
+                    if (thread != Thread.currentThread()) {
+                        thread.interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a virtual thread if the runtime has them, else a platform thread
+     */
+    static Thread newIoThread(final Runnable body, final String name) {
+        if (NEW_VIRTUAL_THREAD != null) {
+            try {
+                return (Thread) NEW_VIRTUAL_THREAD.invoke(name, body);
+            } catch (Throwable t) {
+                throw new IllegalStateException("can't create virtual thread " + name, t);
+            }
+        }
+        return new Thread(body, name);
+    }
+
+    static MethodHandle findVirtualThreadFactory() {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            final MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")))
+                    .asType(MethodType.methodType(builder));
+            final MethodHandle name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class));
+            final MethodHandle unstarted = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+            // (name, body) -> unstarted(name(ofVirtual(), name), body)
+            return MethodHandles.collectArguments(unstarted, 0, MethodHandles.collectArguments(name, 0, ofVirtual));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            Log.info("Using platform threads for pipeline I/O: " + e);
+            return null;
+        }
+    }
+
+    Item read(final Item item, final ParserConfiguration parserConfiguration) {
+        item.event.begin();
+        final long start = System.nanoTime();
+        try {
+            item.source = Files.readString(Path.of(item.job.sourceFileName), parserConfiguration.getCharacterEncoding());
+        } catch (Throwable t) {
+            item.failure = t;
+        }
+        TranslationReport.FileMetrics.lap(item.metrics, "read", start);
+        return item;
+    }
+
+    void transform(final Item item, final JavaParser parser, final ParserConfiguration parserConfiguration) {
+        if (item.failure != null) {
+            return;
+        }
+        try {
+            Log.info("-- "  + item.job.javaFilepath + " -> " + item.job.tsFilePath);
+            final long start = System.nanoTime();
+            final Supplier<CompilationUnit> parse = () -> {
+                final String source = this.translator.config.declarationsOnly ? BodySkipper.skipBodies(item.source) : item.source;
+                final ParseResult<CompilationUnit> result = parser.parse(ParseStart.COMPILATION_UNIT, Providers.provider(source));
+                if (!result.isSuccessful()) {
+                    throw new ParseProblemException(result.getProblems());
+                }
+                final CompilationUnit cu = result.getResult().get();
+                cu.setStorage(Path.of(item.job.sourceFileName), parserConfiguration.getCharacterEncoding());
+                return cu;
+            };
+            final CompilationUnit cu = this.translator.parseSession == null
+                    ? parse.get()
+                    : this.translator.parseSession.parse(this.translator.getParseKey(Path.of(item.job.sourceFileName)), parse);
+            item.source = null;
+            TranslationReport.FileMetrics.lap(item.metrics, "parse", start);
+            if (item.metrics != null) {
+                item.metrics.astNodes = cu.stream().count();
+            }
+            final int retained = this.translator.retainedAsts.incrementAndGet();
+            this.translator.peakRetainedAsts.accumulateAndGet(retained, Math::max);
+            try {
+                item.typescript = this.translator.printCompilationUnit(cu, item.job.sourceFileName, item.job.siblings, item.job.moduleMap, this.translator.getPrinterConfiguration(), null, item.metrics, null).toString();
+            } finally {
+                this.translator.retainedAsts.decrementAndGet();
+            }
+        } catch (Throwable t) {
+            item.failure = t;
+        }
+    }
+
+    void write(final Item item) {
+        Boolean wrote = null;
+        if (item.failure == null) {
+            try {
+                final long start = System.nanoTime();
+                wrote = this.translator.outputWriter.write(item.job.tsFilePath, item.typescript);
+                TranslationReport.FileMetrics.lap(item.metrics, "write", start);
+                if (this.report != null) {
+                    item.metrics.outputBytes = Files.size(item.job.tsFilePath);
+                    this.report.add(item.metrics);
+                }
+            } catch (Throwable t) {
+                item.failure = t;
+            }
+        }
+        item.event.end();
+        if (item.event.shouldCommit()) {
+            item.event.javaFile = item.job.javaFilepath;
+            item.event.module = item.job.javaModuleName;
+            item.event.nodeCount = item.metrics == null ? 0 : item.metrics.astNodes;
+            item.event.outcome = wrote == null ? "failed" : wrote ? "written" : "unchanged";
+            item.event.commit();
+        }
+    }
+
+    static double percent(final long nanos, final double total) {
+        return total == 0 ? 0.0 : Math.round(nanos * 1000.0 / total) / 10.0;
+    }
+}
@@ -0,0 +1,244 @@
+package org.javatots.main;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Timings and sizes for one run of the translator, written as JSON for dashboards.
+ * Per-file phases are "read" (pipeline only), "parse", "imports", "preprocess.<Visitor>" (plus "preprocess.traversal" for fused passes),
+ * "print" and "write"; with streamed output "print" includes writing to the temp file and "write" is the
+ * compare-and-rename.
+ * A shard's report also lists every file's raw metrics so that `merge` can combine the shards' reports exactly.
+ */
+public class TranslationReport {
+    public static final int DEFAULT_TOP_FILES = 10;
+
+    final long startNanos = System.nanoTime();
+    long discoverNanos;
+    int jobsFound;
+    final List<FileMetrics> files = Collections.synchronizedList(new ArrayList<>());
+    Map<String, Object> pipeline;
+    String shard; // i/N if this is one shard's part of a run
+    int shards; // number of shard reports merged into this one
+    long wallNanos = -1; // of merged reports: that of the slowest shard
+
+    /**
+     * Timings and sizes for one file. Only touched by the thread translating it.
+     */
+    public static class FileMetrics {
+        public final String javaFilepath;
+        public final String javaModuleName;
+        public final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+        public long astNodes;
+        public long outputBytes;
+
+        public FileMetrics(final String javaFilepath, final String javaModuleName) {
+            this.javaFilepath = javaFilepath;
+            this.javaModuleName = javaModuleName;
+        }
+
+        public void add(final String phase, final long nanos) {
+            this.phaseNanos.merge(phase, nanos, Long::sum);
+        }
+
+        public long getTotalNanos() {
+            long total = 0;
+            for (long nanos : this.phaseNanos.values()) {
+                total += nanos;
+            }
+            return total;
+        }
+
+        /**
+         * Charge the time since `start` to `phase` if there's a `metrics`.
+         * @return now, to start the next phase
+         */
+        public static long lap(final FileMetrics metrics, final String phase, final long start) {
+            final long now = System.nanoTime();
+            if (metrics != null) {
+                metrics.add(phase, now - start);
+            }
+            return now;
+        }
+    }
+
+    public void setDiscovery(final long nanos, final int jobsFound) {
+        this.discoverNanos = nanos;
+        this.jobsFound = jobsFound;
+    }
+
+    /**
+     * @param pipeline stage occupancy from TranslationPipeline
+     */
+    public void setPipeline(final Map<String, Object> pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public void add(final FileMetrics metrics) {
+        this.files.add(metrics);
+    }
+
+    public void setShard(final String shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * Combine the reports of all shards of a run. Wall and discovery times are those of the slowest shard.
+     * @param partials reports written with a shard set
+     * @return the report of the whole run
+     */
+    public static TranslationReport merge(final List<Path> partials) throws IOException {
+        final TranslationReport merged = new TranslationReport();
+        merged.wallNanos = 0;
+        for (Path partial : partials) {
+            final Map<?, ?> report = (Map<?, ?>) Json.parse(Files.readString(partial));
+            if (!(report.get("files") instanceof List)) {
+                throw new IllegalStateException(partial + " isn't a shard's report");
+            }
+            merged.jobsFound = Math.max(merged.jobsFound, ((Number) report.get("jobsFound")).intValue());
+            merged.wallNanos = Math.max(merged.wallNanos, nanos(report.get("wallMillis")));
+            merged.discoverNanos = Math.max(merged.discoverNanos, nanos(report.get("discoverMillis")));
+            for (Object o : (List<?>) report.get("files")) {
+                final Map<?, ?> file = (Map<?, ?>) o;
+                final FileMetrics metrics = new FileMetrics((String) file.get("file"), (String) file.get("module"));
+                metrics.astNodes = ((Number) file.get("astNodes")).longValue();
+                metrics.outputBytes = ((Number) file.get("outputBytes")).longValue();
+                for (Map.Entry<?, ?> phase : ((Map<?, ?>) file.get("phaseNanos")).entrySet()) {
+                    metrics.add((String) phase.getKey(), ((Number) phase.getValue()).longValue());
+                }
+                merged.add(metrics);
+            }
+        }
+        merged.shards = partials.size();
+        return merged;
+    }
+
+    static long nanos(final Object millis) {
+        return Math.round(((Number) millis).doubleValue() * 1e6);
+    }
+
+    /**
+     * Write totals, per-phase percentiles and the slowest files.
+     * @param path where to write the JSON
+     * @param topFiles how many of the slowest files to list
+     * @throws IOException
+     */
+    public void write(final Path path, final int topFiles) throws IOException {
+        final long wallNanos = this.wallNanos >= 0 ? this.wallNanos : System.nanoTime() - this.startNanos;
+        final List<FileMetrics> files;
+        synchronized (this.files) {
+            files = new ArrayList<>(this.files);
+        }
+        // Gather each phase's samples, keeping phases in the order they were first seen.
+        final Map<String, List<Long>> phases = new LinkedHashMap<>();
+        final List<Long> totals = new ArrayList<>();
+        long astNodes = 0;
+        long outputBytes = 0;
+        for (FileMetrics file : files) {
+            for (Map.Entry<String, Long> phase : file.phaseNanos.entrySet()) {
+                phases.computeIfAbsent(phase.getKey(), k -> new ArrayList<>()).add(phase.getValue());
+            }
+            totals.add(file.getTotalNanos());
+            astNodes += file.astNodes;
+            outputBytes += file.outputBytes;
+        }
+        files.sort(Comparator.comparingLong(FileMetrics::getTotalNanos).reversed());
+
+        final Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        try (Writer out = Files.newBufferedWriter(path)) {
+            out.write("{\n");
+            if (this.shard != null) {
+                out.write("  \"shard\": " + Json.quote(this.shard) + ",\n");
+            }
+            if (this.shards > 0) {
+                out.write("  \"shards\": " + this.shards + ",\n");
+            }
+            out.write("  \"jobsFound\": " + this.jobsFound + ",\n");
+            out.write("  \"filesTranslated\": " + files.size() + ",\n");
+            out.write("  \"wallMillis\": " + millis(wallNanos) + ",\n");
+            out.write("  \"discoverMillis\": " + millis(this.discoverNanos) + ",\n");
+            out.write("  \"filesPerSecond\": " + (wallNanos == 0 ? 0 : Math.round(files.size() * 1e9 / wallNanos * 10) / 10.0) + ",\n");
+            out.write("  \"astNodes\": " + astNodes + ",\n");
+            out.write("  \"outputBytes\": " + outputBytes + ",\n");
+            out.write("  \"perFile\": " + stats(totals) + ",\n");
+            out.write("  \"phases\": {");
+            String sep = "\n";
+            for (Map.Entry<String, List<Long>> phase : phases.entrySet()) {
+                out.write(sep + "    " + Json.quote(phase.getKey()) + ": " + stats(phase.getValue()));
+                sep = ",\n";
+            }
+            out.write("\n  },\n");
+            if (this.pipeline != null) {
+                out.write("  \"pipeline\": " + Json.write(this.pipeline) + ",\n");
+            }
+            out.write("  \"slowest\": [");
+            sep = "\n";
+            for (FileMetrics file : files.subList(0, Math.min(topFiles, files.size()))) {
+                out.write(sep + "    {\"file\": " + Json.quote(file.javaFilepath)
+                        + ", \"module\": " + Json.quote(file.javaModuleName)
+                        + ", \"totalMillis\": " + millis(file.getTotalNanos())
+                        + ", \"astNodes\": " + file.astNodes
+                        + ", \"outputBytes\": " + file.outputBytes
+                        + ", \"phases\": {");
+                String phaseSep = "";
+                for (Map.Entry<String, Long> phase : file.phaseNanos.entrySet()) {
+                    out.write(phaseSep + Json.quote(phase.getKey()) + ": " + millis(phase.getValue()));
+                    phaseSep = ", ";
+                }
+                out.write("}}");
+                sep = ",\n";
+            }
+            out.write("\n  ]");
+            if (this.shard != null) {
+                out.write(",\n  \"files\": [");
+                sep = "\n";
+                for (FileMetrics file : files) {
+                    out.write(sep + "    {\"file\": " + Json.quote(file.javaFilepath)
+                            + ", \"module\": " + Json.quote(file.javaModuleName)
+                            + ", \"astNodes\": " + file.astNodes
+                            + ", \"outputBytes\": " + file.outputBytes
+                            + ", \"phaseNanos\": " + Json.write(file.phaseNanos) + "}");
+                    sep = ",\n";
+                }
+                out.write("\n  ]");
+            }
+            out.write("\n}\n");
+        }
+    }
+
+    /**
+     * @return JSON object with total, p50, p90, p99 and max in milliseconds
+     */
+    static String stats(final List<Long> samples) {
+        final long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+        long total = 0;
+        for (long sample : sorted) {
+            total += sample;
+        }
+        return "{\"count\": " + sorted.length
+                + ", \"totalMillis\": " + millis(total)
+                + ", \"p50Millis\": " + millis(percentile(sorted, 50))
+                + ", \"p90Millis\": " + millis(percentile(sorted, 90))
+                + ", \"p99Millis\": " + millis(percentile(sorted, 99))
+                + ", \"maxMillis\": " + millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]) + "}";
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    static long percentile(final long[] sorted, final int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    static String millis(final long nanos) {
+        return String.valueOf(Math.round(nanos / 1e3) / 1e3);
+    }
+}
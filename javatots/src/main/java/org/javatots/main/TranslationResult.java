@@ -0,0 +1,51 @@
+package org.javatots.main;
+
+import java.util.List;
+
+/**
+ * The outcome of Translator.translate: the Typescript, where it belongs and anything worth telling the caller.
+ */
+public class TranslationResult {
+    public enum Severity { ERROR, WARNING }
+
+    /**
+     * A problem with the input or a guess the translator had to make.
+     */
+    public static class Diagnostic {
+        public final Severity severity;
+        public final String message;
+
+        public Diagnostic(final Severity severity, final String message) {
+            this.severity = severity;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return this.severity + ": " + this.message;
+        }
+    }
+
+    public final String javaPath;
+    // where walkModules would write it: outputDirectory/outputPath/...; null if the path matched no module
+    public final String tsPath;
+    // null if translation failed
+    public final String typescript;
+    public final List<Diagnostic> diagnostics;
+
+    public TranslationResult(final String javaPath, final String tsPath, final String typescript, final List<Diagnostic> diagnostics) {
+        this.javaPath = javaPath;
+        this.tsPath = tsPath;
+        this.typescript = typescript;
+        this.diagnostics = List.copyOf(diagnostics);
+    }
+
+    public boolean isSuccessful() {
+        return this.typescript != null;
+    }
+
+    @Override
+    public String toString() {
+        return "TranslationResult{" + this.javaPath + " -> " + this.tsPath + (this.isSuccessful() ? "" : " failed") + ", diagnostics=" + this.diagnostics + '}';
+    }
+}
@@ -0,0 +1,222 @@
+package org.javatots.main;
+
+import com.github.javaparser.utils.Log;
+import com.github.javaparser.utils.SourceRoot;
+import org.javatots.config.ModuleMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keep the output up to date while the Java is edited: watch every module's srcRoot and retranslate just the files
+ * which changed. Events are collected until none arrive for `config.watchDebounceMillis` so that an editor saving a
+ * file in several steps, or a checkout touching many files, is handled as one batch.
+ * Adding or removing a file changes the sibling set of its package, so the rest of that package is retranslated too.
+ * Outputs of deleted files are removed. Only `.java` files are considered, which keeps editor backups out.
+ * The translator should have `config.boundedMemory` set since the SourceRoot cache would hide edits.
+ */
+public class TranslationWatcher implements Closeable {
+    public static final String JAVA_FILE_SUFFIX = ".java";
+
+    final JavaToTypescript translator;
+    final SourceRoot sourceRoot;
+    final WatchService watchService;
+    final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    // .java files in each directory as of the last batch, used to tell additions and removals from edits
+    final Map<Path, Set<Path>> knownFiles = new HashMap<>();
+
+    /**
+     * Start watching the modules' srcRoots. Changes made from here on are seen by `run`.
+     */
+    public TranslationWatcher(final JavaToTypescript translator, final SourceRoot sourceRoot) throws IOException {
+        this.translator = translator;
+        this.sourceRoot = sourceRoot;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.registerModules();
+    }
+
+    protected void registerModules() throws IOException {
+        final Path inputDirectory = Path.of(this.translator.config.inputDirectory == null ? "" : this.translator.config.inputDirectory);
+        for (Map.Entry<String, ModuleMap> moduleMapEntry : this.translator.config.moduleMaps.entrySet()) {
+            final Path srcRoot = inputDirectory.resolve(moduleMapEntry.getKey()).resolve(moduleMapEntry.getValue().srcRoot).toAbsolutePath().normalize();
+            if (Files.isDirectory(srcRoot)) {
+                this.knownFiles.putAll(this.registerTree(srcRoot));
+            } else {
+                Log.info("Not watching missing srcRoot " + srcRoot);
+            }
+        }
+    }
+
+    /**
+     * Watch `root` and every directory below it.
+     * @return the .java files found in each directory
+     */
+    protected Map<Path, Set<Path>> registerTree(final Path root) throws IOException {
+        final Map<Path, Set<Path>> found = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    this.watchedDirs.put(path.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), path);
+                } else if (isJavaFile(path)) {
+                    found.computeIfAbsent(path.getParent(), dir -> new HashSet<>()).add(path);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Retranslate changed files until interrupted or there's nothing left to watch.
+     */
+    public void run() throws IOException, InterruptedException {
+        Log.info("Watching " + this.watchedDirs.size() + " directories");
+        while (!this.watchedDirs.isEmpty()) {
+            final Set<Path> changed = new LinkedHashSet<>();
+            boolean overflow = this.collect(this.watchService.take(), changed);
+            WatchKey key;
+            while ((key = this.watchService.poll(this.translator.config.watchDebounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                overflow |= this.collect(key, changed);
+            }
+            if (overflow) {
+                Log.info("Watch: lost track of changes, retranslating everything");
+                this.knownFiles.clear();
+                this.registerModules(); // re-registering a directory returns its existing key
+                this.translator.walkModules(this.sourceRoot);
+            } else if (!changed.isEmpty()) {
+                this.retranslate(changed);
+            }
+        }
+        Log.info("Watch: nothing left to watch");
+    }
+
+    /**
+     * Add the paths in `key`'s events to `changed`; new directories are watched and their files treated as changed.
+     * @return whether events were lost
+     */
+    protected boolean collect(final WatchKey key, final Set<Path> changed) throws IOException {
+        final Path dir = this.watchedDirs.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW || dir == null) {
+                overflow = true;
+                continue;
+            }
+            final Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // files may have been created before the directory was registered
+                this.registerTree(path).values().forEach(changed::addAll);
+            } else {
+                changed.add(path); // a deleted directory is expanded to its known files in retranslate
+            }
+        }
+        if (!key.reset()) {
+            this.watchedDirs.remove(key);
+        }
+        return overflow;
+    }
+
+    /**
+     * Bring the outputs of `changed` up to date, along with the rest of any package which gained or lost a file.
+     * @param changed created, modified or deleted files and deleted directories
+     */
+    protected void retranslate(final Set<Path> changed) {
+        final long start = System.nanoTime();
+        final Set<Path> files = new LinkedHashSet<>();
+        for (Path path : changed) {
+            if (isJavaFile(path)) {
+                files.add(path);
+            } else {
+                for (Map.Entry<Path, Set<Path>> entry : this.knownFiles.entrySet()) {
+                    if (entry.getKey().startsWith(path)) {
+                        files.addAll(entry.getValue());
+                    }
+                }
+            }
+        }
+
+        final Set<Path> toTranslate = new LinkedHashSet<>();
+        final List<Path> deleted = new ArrayList<>();
+        final Set<Path> membershipChanged = new LinkedHashSet<>();
+        for (Path file : files) {
+            final Path dir = file.getParent();
+            final Set<Path> known = this.knownFiles.computeIfAbsent(dir, d -> new HashSet<>());
+            if (Files.isRegularFile(file)) {
+                toTranslate.add(file);
+                if (known.add(file)) {
+                    membershipChanged.add(dir);
+                }
+            } else if (known.remove(file)) {
+                deleted.add(file);
+                membershipChanged.add(dir);
+            }
+        }
+        for (Path dir : membershipChanged) {
+            toTranslate.addAll(this.knownFiles.get(dir)); // their `./X` imports may have changed
+        }
+        this.knownFiles.values().removeIf(Set::isEmpty);
+
+        for (Path file : deleted) {
+            try {
+                final TranslationJob job = this.translator.findJob(file, Collections.emptySet());
+                if (Files.deleteIfExists(job.tsFilePath)) {
+                    Log.info("Removed " + job.tsFilePath);
+                    // like a full run, leave no empty package directories behind
+                    final Path outputRoot = Path.of(this.translator.config.outputDirectory == null ? "" : this.translator.config.outputDirectory, job.moduleMap.outputPath);
+                    for (Path dir = job.tsFilePath.getParent(); dir != null && dir.startsWith(outputRoot) && !dir.equals(outputRoot); dir = dir.getParent()) {
+                        try (Stream<Path> entries = Files.list(dir)) {
+                            if (entries.findAny().isPresent()) {
+                                break;
+                            }
+                        }
+                        Files.delete(dir);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.error(e, "Watch: couldn't remove the output of " + file);
+            }
+        }
+
+        // one index per package, built from what's there now
+        final Map<Path, PackageIndex> packageIndexes = new HashMap<>();
+        final List<TranslationJob> jobs = new ArrayList<>();
+        for (Path file : toTranslate) {
+            final PackageIndex packageIndex = packageIndexes.computeIfAbsent(file.getParent(), dir ->
+                    new PackageIndex(dir, this.knownFiles.getOrDefault(dir, Collections.emptySet()).toArray(Path[]::new)));
+            try {
+                jobs.add(this.translator.findJob(file, packageIndex.getSiblings(file)));
+            } catch (IOException | RuntimeException e) {
+                Log.error(e, "Watch: can't translate " + file);
+            }
+        }
+        int written = 0;
+        for (TranslationJob job : jobs) {
+            try {
+                if (this.translator.translate(this.sourceRoot, job, null)) {
+                    ++written;
+                }
+            } catch (IOException | RuntimeException e) {
+                // probably saved mid-edit; the next save retries
+                Log.error(e, "Watch: failed to translate " + job.sourceFileName);
+            }
+        }
+        Log.info("Watch: " + files.size() + " changed, " + jobs.size() + " retranslated (" + written + " written), "
+                + deleted.size() + " removed in " + (System.nanoTime() - start) / 1_000_000 + "ms: "
+                + files.stream().map(f -> String.valueOf(f.getFileName())).collect(Collectors.joining(", ")));
+    }
+
+    static boolean isJavaFile(final Path path) {
+        return String.valueOf(path.getFileName()).endsWith(JAVA_FILE_SUFFIX);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+}
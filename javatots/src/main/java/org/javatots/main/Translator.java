@@ -0,0 +1,98 @@
+package org.javatots.main;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.Problem;
+import com.github.javaparser.ast.CompilationUnit;
+import org.javatots.config.JtsConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Translate Java source held in memory, e.g. generated code, to Typescript without writing anything.
+ * One Translator can be used by any number of threads at once; don't modify its JtsConfig while it's in use.
+ * <pre>
+ *   Translator translator = Translator.create(JavaToTypescript.loadConfig("config.yaml"));
+ *   TranslationResult result = translator.translate(source, "customer-db/src/main/java/org/example/Customer.java");
+ * </pre>
+ */
+public class Translator {
+    final JavaToTypescript javaToTypescript;
+    final ParserConfiguration parserConfiguration = new ParserConfiguration();
+    // JavaParser isn't thread-safe
+    final ThreadLocal<JavaParser> parsers = ThreadLocal.withInitial(() -> new JavaParser(this.parserConfiguration));
+
+    protected Translator(final JtsConfig config) {
+        this.javaToTypescript = new JavaToTypescript(config);
+    }
+
+    public static Translator create(final JtsConfig config) {
+        return new Translator(config);
+    }
+
+    /**
+     * Translate `javaSource` as if it were at `javaPath`. Sibling classes (which need explicit imports in Typescript)
+     * are found by listing javaPath's directory if it exists.
+     * @param javaSource Java compilation unit
+     * @param javaPath path relative to the config's inputDirectory, e.g. module/src/main/java/org/example/A.java;
+     *                 determines the module, packageMap and relative imports
+     * @return the result; check isSuccessful()
+     */
+    public TranslationResult translate(final String javaSource, final String javaPath) {
+        return this.translate(javaSource, javaPath, null);
+    }
+
+    /**
+     * Like translate above with known siblings.
+     * @param siblings names of the other classes in javaPath's package
+     */
+    public TranslationResult translate(final String javaSource, final String javaPath, final Set<String> siblings) {
+        final List<TranslationResult.Diagnostic> diagnostics = new ArrayList<>();
+        final TranslationJob job;
+        try {
+            job = this.javaToTypescript.findJob(Path.of(javaPath), siblings == null ? null : withoutSelf(siblings, javaPath));
+        } catch (IOException | RuntimeException e) {
+            diagnostics.add(new TranslationResult.Diagnostic(TranslationResult.Severity.ERROR, String.valueOf(e)));
+            return new TranslationResult(javaPath, null, null, diagnostics);
+        }
+        final String tsPath = String.valueOf(job.tsFilePath);
+
+        final ParseResult<CompilationUnit> parsed = this.parsers.get().parse(this.javaToTypescript.config.declarationsOnly
+                ? BodySkipper.skipBodies(javaSource)
+                : javaSource);
+        for (Problem problem : parsed.getProblems()) {
+            diagnostics.add(new TranslationResult.Diagnostic(TranslationResult.Severity.ERROR, problem.getVerboseMessage()));
+        }
+        if (!parsed.isSuccessful() || parsed.getResult().isEmpty()) {
+            return new TranslationResult(javaPath, tsPath, null, diagnostics);
+        }
+        final CompilationUnit cu = parsed.getResult().get();
+        cu.setStorage(Path.of(job.sourceFileName));
+
+        try {
+            final String typescript = this.javaToTypescript.printCompilationUnit(cu, job.sourceFileName, job.siblings, job.moduleMap, this.javaToTypescript.getPrinterConfiguration(), null, null,
+                    warning -> diagnostics.add(new TranslationResult.Diagnostic(TranslationResult.Severity.WARNING, warning))
+            ).toString();
+            return new TranslationResult(javaPath, tsPath, typescript, diagnostics);
+        } catch (RuntimeException e) {
+            diagnostics.add(new TranslationResult.Diagnostic(TranslationResult.Severity.ERROR, String.valueOf(e)));
+            return new TranslationResult(javaPath, tsPath, null, diagnostics);
+        }
+    }
+
+    static Set<String> withoutSelf(final Set<String> siblings, final String javaPath) {
+        final String self = PackageIndex.getClassName(Path.of(javaPath));
+        if (!siblings.contains(self)) {
+            return siblings;
+        }
+        final Set<String> ret = new HashSet<>(siblings);
+        ret.remove(self);
+        return ret;
+    }
+}
@@ -1,5 +1,10 @@
 package org.javatots.main;
 
+/**
+ * A Typescript import an ImportHandler adds, written Java-style: "module.Binding", e.g. "fs.Fs" with importIsAsterisk
+ * for `import * as Fs from 'fs'` or "stream.Readable" for `import { Readable } from 'stream'`. Dots in the module
+ * part become slashes.
+ */
 public class TypescriptImport {
     public String importName;
     public boolean importIsStatic;
@@ -10,4 +15,13 @@ public class TypescriptImport {
         this.importIsStatic = importIsStatic;
         this.importIsAsterisk = importIsAsterisk;
     }
+
+    public TypescriptModuleImport toModuleImport() {
+        final int iName = this.importName.lastIndexOf('.');
+        final String moduleSpecifier = iName == -1 ? "" : this.importName.substring(0, iName).replace('.', '/');
+        final String binding = this.importName.substring(iName + 1);
+        return this.importIsAsterisk
+                ? TypescriptModuleImport.namespace(moduleSpecifier, binding)
+                : TypescriptModuleImport.named(moduleSpecifier, binding);
+    }
 }
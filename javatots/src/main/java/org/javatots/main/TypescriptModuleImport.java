@@ -0,0 +1,79 @@
+package org.javatots.main;
+
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.expr.Name;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A Typescript import statement: a module specifier with either named bindings or a namespace binding.
+ * processImports attaches one to each ImportDeclaration it keeps and TypescriptPrettyPrinter prints it as is.
+ */
+public class TypescriptModuleImport {
+    public static final DataKey<TypescriptModuleImport> DATA_KEY = new DataKey<>() { };
+
+    public final String moduleSpecifier;
+    public final List<String> namedBindings;
+    public final String namespaceBinding;
+    public final boolean typeOnly;
+
+    public TypescriptModuleImport(final String moduleSpecifier, final List<String> namedBindings, final String namespaceBinding, final boolean typeOnly) {
+        if (namedBindings.isEmpty() == (namespaceBinding == null)) {
+            throw new IllegalArgumentException("import from " + moduleSpecifier + " needs either named bindings or a namespace binding");
+        }
+        this.moduleSpecifier = moduleSpecifier;
+        this.namedBindings = List.copyOf(namedBindings);
+        this.namespaceBinding = namespaceBinding;
+        this.typeOnly = typeOnly;
+    }
+
+    /**
+     * @return import { binding } from 'moduleSpecifier'
+     */
+    public static TypescriptModuleImport named(final String moduleSpecifier, final String binding) {
+        return new TypescriptModuleImport(moduleSpecifier, List.of(binding), null, false);
+    }
+
+    /**
+     * @return import * as binding from 'moduleSpecifier'
+     */
+    public static TypescriptModuleImport namespace(final String moduleSpecifier, final String binding) {
+        return new TypescriptModuleImport(moduleSpecifier, List.of(), binding, false);
+    }
+
+    /**
+     * Attach this to `importDecl` so it's printed instead of the Java import.
+     * @return importDecl
+     */
+    public ImportDeclaration attachTo(final ImportDeclaration importDecl) {
+        importDecl.setData(DATA_KEY, this);
+        return importDecl;
+    }
+
+    /**
+     * @return a new ImportDeclaration carrying this; its Java name is just the binding
+     */
+    public ImportDeclaration toImportDeclaration() {
+        return this.attachTo(new ImportDeclaration(new Name(this.namespaceBinding == null ? this.namedBindings.get(0) : this.namespaceBinding), false, this.namespaceBinding != null));
+    }
+
+    /**
+     * @return the import attached to `importDecl`, if any
+     */
+    public static Optional<TypescriptModuleImport> of(final ImportDeclaration importDecl) {
+        return importDecl.containsData(DATA_KEY) ? Optional.of(importDecl.getData(DATA_KEY)) : Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.typeOnly ? "import type " : "import ");
+        if (this.namespaceBinding != null) {
+            sb.append("* as ").append(this.namespaceBinding);
+        } else {
+            sb.append("{ ").append(String.join(", ", this.namedBindings)).append(" }");
+        }
+        return sb.append(" from '").append(this.moduleSpecifier).append("';").toString();
+    }
+}
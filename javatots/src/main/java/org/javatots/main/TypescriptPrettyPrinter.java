@@ -22,6 +22,9 @@ import com.github.javaparser.utils.PositionUtils;
 import com.github.javaparser.utils.Utils;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -39,12 +42,73 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
     BiConsumer<SourcePrinter, ImportDeclaration> onImportDeclaration = null;
     BiConsumer<SourcePrinter, NodeList<ReferenceType>> onThrows;
     BiConsumer<SourcePrinter, NodeList<AnnotationExpr>> onMethodAnnotations;
+    // print a .d.ts: ambient classes, no bodies or field initializers.
+    boolean declarationsOnly = false;
+    // children of each node visited so far, sorted once for orphan comment placement.
+    private final Map<Node, SortedChildren> sortedChildren = new IdentityHashMap<>();
+    // see streamTo
+    private Writer stream = null;
+    private StringBuilder streamBuffer = null;
+    private int streamBufferSize;
 
     public TypescriptPrettyPrinter(final PrinterConfiguration configuration, final Optional<PackageDeclaration> packageDeclaration) {
         super(configuration);
         this.packageDeclaration = packageDeclaration;
     }
 
+    /**
+     * Write the output to `out` as it's printed, rather than keeping it all in memory: whenever at least `bufferSize`
+     * characters are waiting as a node starts printing, the complete lines among them are written out, so even one
+     * huge member body (a generated switch table, say) only ever holds about a buffer's worth. Call flushStream after printing. If SourcePrinter's buffer
+     * can't be reached (see SourcePrinterBuffer), everything is written by flushStream instead.
+     * After this, toString() only returns what hasn't been written yet.
+     */
+    public void streamTo(final Writer out, final int bufferSize) {
+        this.stream = out;
+        this.streamBufferSize = bufferSize;
+        this.streamBuffer = SourcePrinterBuffer.find(this.printer);
+    }
+
+    /**
+     * Write out everything printed so far. The Writer itself is left open.
+     * @throws IOException
+     */
+    public void flushStream() throws IOException {
+        if (this.streamBuffer == null) {
+            this.stream.append(this.printer.toString());
+        } else {
+            this.stream.append(this.streamBuffer);
+            this.streamBuffer.setLength(0);
+        }
+        this.stream.flush();
+    }
+
+    /**
+     * Write out the complete lines waiting if there are at least a buffer's worth.
+     */
+    protected void drainStream() {
+        if (this.streamBuffer != null && this.streamBuffer.length() >= this.streamBufferSize) {
+            final int end = this.streamBuffer.lastIndexOf("\n") + 1;
+            if (end > 0) {
+                try {
+                    this.stream.append(this.streamBuffer, 0, end);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                this.streamBuffer.delete(0, end);
+            }
+        }
+    }
+
+    /**
+     * DefaultPrettyPrinterVisitor starts printing nearly every node, statements and expressions included, here.
+     */
+    @Override
+    protected void printComment(final Optional<Comment> comment, final Void arg) {
+        this.drainStream();
+        super.printComment(comment, arg);
+    }
+
     public void setOnPackageDeclaration(final BiConsumer<SourcePrinter, Name> f) {
         this.onPackageDeclaration = f;
     }
@@ -65,8 +129,13 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
         this.onMethodAnnotations = onMethodAnnotations;
     }
 
+    public void setDeclarationsOnly(final boolean declarationsOnly) {
+        this.declarationsOnly = declarationsOnly;
+    }
+
     @Override
     public void visit(final CompilationUnit n, final Void arg) {
+        this.sortedChildren.clear(); // the AST may have changed since the last print
         this.printOrphanCommentsBeforeThisChildNode(n);
         this.printComment(n.getComment(), arg);
 
@@ -106,7 +175,10 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
     public void visit(final ImportDeclaration n, final Void arg) {
         this.printOrphanCommentsBeforeThisChildNode(n);
         this.printComment(n.getComment(), arg);
-        if (this.onImportDeclaration != null) {
+        final Optional<TypescriptModuleImport> typescriptImport = TypescriptModuleImport.of(n);
+        if (typescriptImport.isPresent()) {
+            this.printer.println(typescriptImport.get().toString());
+        } else if (this.onImportDeclaration != null) {
             this.onImportDeclaration.accept(this.printer, n);
         }
         this.printOrphanCommentsEnding(n);
@@ -129,6 +201,9 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
                 remainingModifiers.add(m);
             }
         }
+        if (this.declarationsOnly && !n.isInterface() && n.isTopLevelType()) {
+            this.printer.print("declare ");
+        }
         this.printModifiers(remainingModifiers, TypescriptFinalKeyword.CONST);
         if (n.isInterface()) {
             this.printer.print("interface ");
@@ -264,7 +339,7 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
             this.onThrows.accept(this.printer, n.getThrownExceptions());
         }
 
-        if (!n.getBody().isPresent()) {
+        if (!n.getBody().isPresent() || this.declarationsOnly) {
             this.printer.print(";");
         } else {
             this.printer.print(" ");
@@ -412,7 +487,7 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
 
             });
         });
-        if (n.getInitializer().isPresent()) {
+        if (n.getInitializer().isPresent() && !this.declarationsOnly) {
             this.printer.print(" = ");
             n.getInitializer().get().accept(this, arg);
         }
@@ -472,8 +547,12 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
             this.onThrows.accept(this.printer, n.getThrownExceptions());
         }
 
-        this.printer.print(" ");
-        n.getBody().accept(this, arg);
+        if (this.declarationsOnly) {
+            this.printer.print(";");
+        } else {
+            this.printer.print(" ");
+            n.getBody().accept(this, arg);
+        }
         this.inMethod = false;
     }
 
@@ -605,39 +684,15 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
             if (!(node instanceof Comment)) {
                 Node parent = node.getParentNode().orElse(null);
                 if (parent != null) {
-                    List<Node> everything = new ArrayList(parent.getChildNodes());
-                    PositionUtils.sortByBeginPosition(everything);
-                    int positionOfTheChild = -1;
-
-                    int positionOfPreviousChild;
-                    for (positionOfPreviousChild = 0; positionOfPreviousChild < everything.size(); ++positionOfPreviousChild) {
-                        if (everything.get(positionOfPreviousChild) == node) {
-                            positionOfTheChild = positionOfPreviousChild;
-                            break;
-                        }
-                    }
-
-                    if (positionOfTheChild == -1) {
+                    final SortedChildren siblings = this.getSortedChildren(parent);
+                    final Integer positionOfTheChild = siblings.positions.get(node);
+                    if (positionOfTheChild == null) {
                         throw new AssertionError("I am not a child of my parent.");
-                    } else {
-                        positionOfPreviousChild = -1;
-
-                        int i;
-                        for (i = positionOfTheChild - 1; i >= 0 && positionOfPreviousChild == -1; --i) {
-                            if (!(everything.get(i) instanceof Comment)) {
-                                positionOfPreviousChild = i;
-                            }
-                        }
-
-                        for (i = positionOfPreviousChild + 1; i < positionOfTheChild; ++i) {
-                            Node nodeToPrint = everything.get(i);
-                            if (!(nodeToPrint instanceof Comment)) {
-                                throw new RuntimeException("Expected comment, instead " + nodeToPrint.getClass() + ". Position of previous child: " + positionOfPreviousChild + ", position of child " + positionOfTheChild);
-                            }
-
-                            nodeToPrint.accept((VoidVisitor)this, null);
-                        }
+                    }
 
+                    // everything between the previous non-comment and this child is an orphan comment.
+                    for (int i = siblings.previousNonComment[positionOfTheChild] + 1; i < positionOfTheChild; ++i) {
+                        siblings.everything.get(i).accept((VoidVisitor)this, null);
                     }
                 }
             }
@@ -646,25 +701,46 @@ public class TypescriptPrettyPrinter extends DefaultPrettyPrinterVisitor {
 
     private void printOrphanCommentsEnding(final Node node) {
         if (this.getOption(DefaultPrinterConfiguration.ConfigOption.PRINT_COMMENTS).isPresent()) {
-            List<Node> everything = new ArrayList(node.getChildNodes());
-            PositionUtils.sortByBeginPosition(everything);
-            if (!everything.isEmpty()) {
-                int commentsAtEnd = 0;
-                boolean findingComments = true;
-
-                while(findingComments && commentsAtEnd < everything.size()) {
-                    Node last = everything.get(everything.size() - 1 - commentsAtEnd);
-                    findingComments = last instanceof Comment;
-                    if (findingComments) {
-                        ++commentsAtEnd;
-                    }
-                }
+            final SortedChildren children = this.getSortedChildren(node);
+            final List<Node> everything = children.everything;
+            for (int i = everything.size() - children.commentsAtEnd; i < everything.size(); ++i) {
+                everything.get(i).accept((VoidVisitor)this, null);
+            }
+        }
+    }
 
-                for(int i = 0; i < commentsAtEnd; ++i) {
-                    everything.get(everything.size() - commentsAtEnd + i).accept((VoidVisitor)this, null);
-                }
+    /**
+     * Get `parent`'s children sorted by position, computing them once per print.
+     * @param parent any node in the AST being printed
+     * @return the sorted children and where the comments are
+     */
+    private SortedChildren getSortedChildren(final Node parent) {
+        return this.sortedChildren.computeIfAbsent(parent, SortedChildren::new);
+    }
 
+    /**
+     * A node's children in position order with the information needed to place orphan comments.
+     */
+    static class SortedChildren {
+        final List<Node> everything;
+        final Map<Node, Integer> positions = new IdentityHashMap<>();
+        final int[] previousNonComment; // index of the closest preceding non-comment, or -1
+        final int commentsAtEnd;
+
+        SortedChildren(final Node parent) {
+            this.everything = new ArrayList<>(parent.getChildNodes());
+            PositionUtils.sortByBeginPosition(this.everything);
+            this.previousNonComment = new int[this.everything.size()];
+            int previous = -1;
+            for (int i = 0; i < this.everything.size(); ++i) {
+                final Node child = this.everything.get(i);
+                this.positions.putIfAbsent(child, i);
+                this.previousNonComment[i] = previous;
+                if (!(child instanceof Comment)) {
+                    previous = i;
+                }
             }
+            this.commentsAtEnd = this.everything.size() - 1 - previous;
         }
     }
 
@@ -0,0 +1,121 @@
+package org.javatots.main;
+
+import com.github.javaparser.utils.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Decide the order in which parallel workers take jobs and report progress as they finish.
+ * Files are found in directory order, so one huge generated class near the end would leave the other workers idle
+ * while it's translated alone. Instead the most expensive files go first and the small ones fill in around them.
+ * A file's cost is how long it took last time, if FileTimings has it, else its size scaled by the time per byte of
+ * the files that were timed, else just its size.
+ * Progress is logged in bytes, which tracks the remaining work better than a file count when sizes are skewed.
+ */
+public class WorkScheduler {
+    public static final int PROGRESS_STEPS = 10;
+
+    final List<TranslationJob> jobs;
+    final long[] bytes;
+    final long[] costs;
+    final int[] order;
+    final FileTimings timings;
+    final Function<TranslationJob, String> timingKey;
+    final long totalBytes;
+    long completedBytes;
+    int completedFiles;
+    int progressStep;
+
+    /**
+     * @param jobs files to translate
+     * @param timings from the last run, updated as jobs complete; may be null
+     * @param timingKey the name of a job's file in `timings`
+     */
+    public WorkScheduler(final List<TranslationJob> jobs, final FileTimings timings, final Function<TranslationJob, String> timingKey) {
+        this.jobs = jobs;
+        this.timings = timings;
+        this.timingKey = timingKey;
+        this.bytes = new long[jobs.size()];
+        this.costs = new long[jobs.size()];
+        long totalBytes = 0;
+        long timedBytes = 0;
+        long timedNanos = 0;
+        int timed = 0;
+        for (int i = 0; i < jobs.size(); ++i) {
+            this.bytes[i] = sizeOf(jobs.get(i));
+            totalBytes += this.bytes[i];
+            this.costs[i] = timings == null ? -1 : timings.get(timingKey.apply(jobs.get(i)));
+            if (this.costs[i] >= 0) {
+                timedBytes += this.bytes[i];
+                timedNanos += this.costs[i];
+                ++timed;
+            }
+        }
+        this.totalBytes = totalBytes;
+        // untimed files cost their size, in nanoseconds if anything was timed
+        final double nanosPerByte = timedBytes == 0 ? 1.0 : (double) timedNanos / timedBytes;
+        for (int i = 0; i < jobs.size(); ++i) {
+            if (this.costs[i] < 0) {
+                this.costs[i] = Math.round(this.bytes[i] * nanosPerByte);
+            }
+        }
+        // stable, so equal costs keep directory order
+        this.order = IntStream.range(0, jobs.size()).boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> this.costs[i]).reversed())
+                .mapToInt(Integer::intValue).toArray();
+        Log.info("Scheduling " + jobs.size() + " files, " + totalBytes + " bytes, most expensive first"
+                + (timed == 0 ? " by size" : " by last run's timings for " + timed + " of them"));
+    }
+
+    /**
+     * @return indexes into the jobs in the order to start them
+     */
+    public int[] getOrder() {
+        return this.order;
+    }
+
+    /**
+     * Note that a job finished and keep its time for the next run.
+     * @param index of the job
+     * @param nanos how long it took
+     */
+    public void completed(final int index, final long nanos) {
+        if (this.timings != null) {
+            this.timings.record(this.timingKey.apply(this.jobs.get(index)), nanos);
+        }
+        this.progress(index);
+    }
+
+    /**
+     * Note that a job failed; its time isn't kept.
+     */
+    public void failed(final int index) {
+        this.progress(index);
+    }
+
+    protected synchronized void progress(final int index) {
+        this.completedBytes += this.bytes[index];
+        ++this.completedFiles;
+        final int step = this.totalBytes == 0 ? PROGRESS_STEPS : (int) (this.completedBytes * PROGRESS_STEPS / this.totalBytes);
+        if (step > this.progressStep) {
+            this.progressStep = step;
+            Log.info("Progress: " + this.completedBytes + " of " + this.totalBytes + " bytes ("
+                    + this.completedFiles + " of " + this.jobs.size() + " files)");
+        }
+    }
+
+    static long sizeOf(final TranslationJob job) {
+        try {
+            return Files.size(Path.of(job.sourceFileName));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
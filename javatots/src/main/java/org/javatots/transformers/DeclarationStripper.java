@@ -0,0 +1,41 @@
+package org.javatots.transformers;
+
+import com.github.javaparser.ast.body.*;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.visitor.ModifierVisitor;
+import com.github.javaparser.ast.visitor.Visitable;
+
+/**
+ * Reduce a CompilationUnit to its declarations for a .d.ts: drop method and constructor bodies, initializer blocks
+ * and field initializers. Only type bodies are descended into, so the cost is proportional to the number of members.
+ */
+public class DeclarationStripper extends ModifierVisitor<Void> {
+    @Override
+    public Visitable visit(final MethodDeclaration n, final Void arg) {
+        n.removeBody();
+        return n;
+    }
+
+    @Override
+    public Visitable visit(final ConstructorDeclaration n, final Void arg) {
+        n.setBody(new BlockStmt());
+        return n;
+    }
+
+    @Override
+    public Visitable visit(final InitializerDeclaration n, final Void arg) {
+        return null; // removes it from the type's members
+    }
+
+    @Override
+    public Visitable visit(final FieldDeclaration n, final Void arg) {
+        n.getVariables().forEach(VariableDeclarator::removeInitializer);
+        return n;
+    }
+
+    @Override
+    public Visitable visit(final EnumConstantDeclaration n, final Void arg) {
+        n.getClassBody().clear();
+        return n;
+    }
+}
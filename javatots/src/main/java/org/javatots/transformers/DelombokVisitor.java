@@ -1,6 +1,7 @@
 package org.javatots.transformers;
 
 import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.*;
 import com.github.javaparser.ast.expr.*;
@@ -12,19 +13,35 @@ import org.javatots.main.MemberDeclarations;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.Set;
 
 /**
  * Find (a few of the) Lombok (class) annotations and materialize them as new members functions.
  */
-public class DelombokVisitor extends ModifierVisitor<Void> {
+public class DelombokVisitor extends ModifierVisitor<Void> implements NodeRewriter {
     boolean getters;
     boolean setters;
     boolean noArgsCtor;
     boolean allArgsCtor;
     ArrayList<MemberDeclarations> memberDeclarations;
 
+    @Override
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(ClassOrInterfaceDeclaration.class);
+    }
+
+    @Override
+    public Visitable rewrite(final Node n) {
+        return rewrite((ClassOrInterfaceDeclaration) n, null);
+    }
+
     @Override
     public Visitable visit(ClassOrInterfaceDeclaration n, Void arg) { //  MethodDeclaration
+        rewrite(n, arg);
+        return super.visit(n, arg);
+    }
+
+    protected Visitable rewrite(ClassOrInterfaceDeclaration n, Void arg) {
         this.getters = false;
         this.setters = false;
         this.noArgsCtor = false;
@@ -124,7 +141,7 @@ public class DelombokVisitor extends ModifierVisitor<Void> {
             }
         }
 
-        return super.visit(n, arg);
+        return n;
     }
 
     @Override
@@ -0,0 +1,133 @@
+package org.javatots.transformers;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.expr.*;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.PrimitiveType;
+import com.github.javaparser.ast.visitor.ModifierVisitor;
+import com.github.javaparser.ast.visitor.Visitable;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Run several NodeRewriters in one traversal. Each node is passed to the rewriters interested in its class, in the
+ * order they were given, before its children are visited.
+ * The argument is the set of rewriters which shouldn't see the current subtree because they produced it.
+ */
+public class FusedRewriteVisitor extends ModifierVisitor<Set<NodeRewriter>> {
+    // Node classes which have a visit override below.
+    public static final Set<Class<? extends Node>> SUPPORTED_NODE_TYPES = Set.of(
+            ClassOrInterfaceDeclaration.class,
+            FieldDeclaration.class,
+            ClassOrInterfaceType.class,
+            PrimitiveType.class,
+            MethodCallExpr.class,
+            ObjectCreationExpr.class,
+            MarkerAnnotationExpr.class,
+            SingleMemberAnnotationExpr.class,
+            NormalAnnotationExpr.class
+    );
+
+    final Map<Class<? extends Node>, List<NodeRewriter>> rewritersByType = new HashMap<>();
+
+    // Time spent in each rewriter's rewrite calls; null unless timeRewriters() was called.
+    Map<NodeRewriter, Long> rewriteNanos;
+
+    public FusedRewriteVisitor(final List<? extends NodeRewriter> rewriters) {
+        for (NodeRewriter rewriter : rewriters) {
+            for (Class<? extends Node> nodeType : rewriter.getNodeTypes()) {
+                if (!SUPPORTED_NODE_TYPES.contains(nodeType)) {
+                    throw new IllegalArgumentException(rewriter.getClass().getName() + " rewrites " + nodeType.getSimpleName() + " which " + FusedRewriteVisitor.class.getSimpleName() + " doesn't dispatch");
+                }
+                this.rewritersByType.computeIfAbsent(nodeType, t -> new ArrayList<>()).add(rewriter);
+            }
+        }
+    }
+
+    /**
+     * Start measuring how long each rewriter spends in rewrite (excluding the traversal).
+     * @return this
+     */
+    public FusedRewriteVisitor timeRewriters() {
+        this.rewriteNanos = new LinkedHashMap<>();
+        return this;
+    }
+
+    /**
+     * @return nanoseconds spent in each rewriter so far; empty unless timeRewriters() was called
+     */
+    public Map<NodeRewriter, Long> getRewriteNanos() {
+        return this.rewriteNanos == null ? Collections.emptyMap() : this.rewriteNanos;
+    }
+
+    /**
+     * Rewrite `n` and its descendants.
+     * @param n typically a CompilationUnit
+     */
+    public void rewrite(final Node n) {
+        n.accept(this, Collections.emptySet());
+    }
+
+    /**
+     * Offer `n` to each interested rewriter and then visit its children.
+     * @param n node being visited
+     * @param excluded rewriters which produced this subtree
+     * @param visitChildren the ModifierVisitor traversal for n's class
+     * @return n, its replacement or null
+     */
+    protected <N extends Node> Visitable dispatch(final N n, final Set<NodeRewriter> excluded, final BiFunction<N, Set<NodeRewriter>, Visitable> visitChildren) {
+        for (NodeRewriter rewriter : this.rewritersByType.getOrDefault(n.getClass(), Collections.emptyList())) {
+            if (excluded.contains(rewriter)) {
+                continue;
+            }
+            final Visitable rewritten;
+            if (this.rewriteNanos == null) {
+                rewritten = rewriter.rewrite(n);
+            } else {
+                final long start = System.nanoTime();
+                rewritten = rewriter.rewrite(n);
+                this.rewriteNanos.merge(rewriter, System.nanoTime() - start, Long::sum);
+            }
+            if (rewritten != n) {
+                if (rewritten == null) {
+                    return null;
+                }
+                // Let the other rewriters see the replacement.
+                final Set<NodeRewriter> alsoExcluded = new HashSet<>(excluded);
+                alsoExcluded.add(rewriter);
+                return rewritten.accept(this, alsoExcluded);
+            }
+        }
+        return visitChildren.apply(n, excluded);
+    }
+
+    @Override
+    public Visitable visit(final ClassOrInterfaceDeclaration n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final FieldDeclaration n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final ClassOrInterfaceType n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final PrimitiveType n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final MethodCallExpr n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final ObjectCreationExpr n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final MarkerAnnotationExpr n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final SingleMemberAnnotationExpr n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+
+    @Override
+    public Visitable visit(final NormalAnnotationExpr n, final Set<NodeRewriter> arg) { return dispatch(n, arg, super::visit); }
+}
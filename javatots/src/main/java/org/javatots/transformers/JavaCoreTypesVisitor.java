@@ -1,5 +1,6 @@
 package org.javatots.transformers;
 
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.BinaryExpr;
 import com.github.javaparser.ast.expr.Expression;
 import com.github.javaparser.ast.expr.MethodCallExpr;
@@ -8,19 +9,54 @@ import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.type.PrimitiveType;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
+import com.github.javaparser.utils.Log;
+
+import java.util.Set;
 
 /**
  * Change java-native scalar types to corresponding typescript (scalar) types.
  */
-public class JavaCoreTypesVisitor extends ModifierVisitor<Void> {
+public class JavaCoreTypesVisitor extends ModifierVisitor<Void> implements NodeRewriter {
+    @Override
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(ClassOrInterfaceType.class, PrimitiveType.class, MethodCallExpr.class);
+    }
+
+    @Override
+    public Visitable rewrite(final Node n) {
+        if (n instanceof ClassOrInterfaceType) {
+            return rewriteType((ClassOrInterfaceType) n);
+        } else if (n instanceof PrimitiveType) {
+            return rewritePrimitive((PrimitiveType) n);
+        } else {
+            return rewriteCall((MethodCallExpr) n);
+        }
+    }
+
+    @Override
+    public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
+        rewriteType(n);
+        return super.visit(n, arg);
+    }
+
+    @Override
+    public Visitable visit(final PrimitiveType n, final Void arg) {
+        final Visitable rewritten = rewritePrimitive(n);
+        return rewritten == n ? super.visit(n, arg) : rewritten;
+    }
+
+    @Override
+    public Visitable visit(final MethodCallExpr n, final Void arg) {
+        final Visitable rewritten = rewriteCall(n);
+        return rewritten == n ? super.visit(n, arg) : rewritten;
+    }
+
     /**
      * Map Java built-in boxed types to Typescript
      * @param n AST class/interface type node
-     * @param arg ignored
-     * @return replacement node
+     * @return n
      */
-    @Override
-    public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
+    public Visitable rewriteType(final ClassOrInterfaceType n) {
         switch (n.getName().asString()) {
             case "String": n.setName("string"); break;
             case "Integer": n.setName("number"); break;
@@ -28,22 +64,20 @@ public class JavaCoreTypesVisitor extends ModifierVisitor<Void> {
             case "HashMap": n.setName("Map"); break;
             case "ArrayList": n.setName("Array"); break;
         }
-        return super.visit(n, arg);
+        return n;
     }
 
     /**
      * Turn primitive Java ints to Typescript numbers
      * @param n AST primitie type node
-     * @param arg ignored
      * @return replacement node
      */
-    @Override
-    public Visitable visit(final PrimitiveType n, final Void arg) {
+    public Visitable rewritePrimitive(final PrimitiveType n) {
         switch (n.getType()) {
             case INT:
                 return new ClassOrInterfaceType("number"); // TODO: deprecated; use what instead?
             default:
-                return super.visit(n, arg);
+                return n;
         }
     }
 
@@ -52,17 +86,16 @@ public class JavaCoreTypesVisitor extends ModifierVisitor<Void> {
      * e.g. `System.out.println(c);`
      *   -> `console.log(c);`
      * @param n Java method call node
-     * @param arg ignored
      * @return replacement node
      */
-    public Visitable visit(final MethodCallExpr n, final Void arg) {
+    public Visitable rewriteCall(final MethodCallExpr n) {
         if (n.getNameAsString().equals("equals")) { // && the type is String, but type resolution fails on + operator, e.g. "f" + "oo"
             if (!n.getScope().isEmpty()) {
                 final BinaryExpr equalsOp = new BinaryExpr(n.getScope().get(), n.getArgument(0), BinaryExpr.Operator.EQUALS);
                 return equalsOp;
             } else {
-                System.out.println("no scope for " + n.toString());
-                return super.visit(n, arg);
+                Log.info("no scope for " + n.toString());
+                return n;
             }
         } else {
             n.getScope().ifPresent(functionScope -> {
@@ -101,7 +134,7 @@ public class JavaCoreTypesVisitor extends ModifierVisitor<Void> {
                     });
                 });
             });
-            return super.visit(n, arg);
+            return n;
         }
     }
 }
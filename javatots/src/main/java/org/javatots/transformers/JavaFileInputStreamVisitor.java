@@ -1,13 +1,14 @@
 package org.javatots.transformers;
 
-import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
 
+import java.util.Set;
+
 /**
  * Change java.io.FileInputStream to typescript Readable.
  * e.g. `InputStream inputStream = new FileInputStream(yamlFilePath);`
@@ -15,21 +16,37 @@ import com.github.javaparser.ast.visitor.Visitable;
  * VariableDeclarator.type is `InputStream`
  * VariableDeclarator.initializer is `new FileInputStream(yamlFilePath)`
  */
-public class JavaFileInputStreamVisitor extends ModifierVisitor<Void> {
+public class JavaFileInputStreamVisitor extends ModifierVisitor<Void> implements NodeRewriter {
     @Override
-    public Visitable visit(final ObjectCreationExpr n, final Void arg) {
-        if (n.getType().asString().equals("FileInputStream")) {
-            return new MethodCallExpr(n.getScope().orElse(null), "Fs.createReadStream", n.getArguments());
-        } else {
-            return super.visit(n, arg);
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(ObjectCreationExpr.class, ClassOrInterfaceType.class);
+    }
+
+    @Override
+    public Visitable rewrite(final Node n) {
+        if (n instanceof ObjectCreationExpr) {
+            final ObjectCreationExpr creation = (ObjectCreationExpr) n;
+            if (creation.getType().asString().equals("FileInputStream")) {
+                return new MethodCallExpr(creation.getScope().orElse(null), "Fs.createReadStream", creation.getArguments());
+            }
+        } else if (n instanceof ClassOrInterfaceType) {
+            final ClassOrInterfaceType type = (ClassOrInterfaceType) n;
+            if (type.asString().equals("InputStream")) {
+                type.setName("Readable");
+            }
         }
+        return n;
+    }
+
+    @Override
+    public Visitable visit(final ObjectCreationExpr n, final Void arg) {
+        final Visitable rewritten = rewrite(n);
+        return rewritten == n ? super.visit(n, arg) : rewritten;
     }
 
     @Override
     public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
-        if (n.asString().equals("InputStream")) {
-            n.setName("Readable");
-        }
+        rewrite(n);
         return super.visit(n, arg);
     }
 }
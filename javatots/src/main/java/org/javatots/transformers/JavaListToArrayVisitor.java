@@ -1,18 +1,33 @@
 package org.javatots.transformers;
 
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
 
+import java.util.Set;
+
 /**
  * Change java.util.List to typescript-native Array.
  */
-public class JavaListToArrayVisitor extends ModifierVisitor<Void> {
+public class JavaListToArrayVisitor extends ModifierVisitor<Void> implements NodeRewriter {
     @Override
-    public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
-        if (n.getName().asString().equals("List")) {
-            n.setName("Array");
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(ClassOrInterfaceType.class);
+    }
+
+    @Override
+    public Visitable rewrite(final Node n) {
+        final ClassOrInterfaceType type = (ClassOrInterfaceType) n;
+        if (type.getName().asString().equals("List")) {
+            type.setName("Array");
         }
+        return n;
+    }
+
+    @Override
+    public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
+        rewrite(n);
         return super.visit(n, arg);
     }
 }
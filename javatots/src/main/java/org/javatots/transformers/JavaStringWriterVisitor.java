@@ -1,24 +1,35 @@
 package org.javatots.transformers;
 
-import com.github.javaparser.ast.NodeList;
-import com.github.javaparser.ast.expr.Expression;
-import com.github.javaparser.ast.expr.MethodCallExpr;
-import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
 
+import java.util.Set;
+
 /**
  * Change java.io.FileInputStream to typescript Readable.
  * e.g. `StringWriter writer = new StringWriter();`
  *   -> `writer: Writable = new Writable();`
  */
-public class JavaStringWriterVisitor extends ModifierVisitor<Void> {
+public class JavaStringWriterVisitor extends ModifierVisitor<Void> implements NodeRewriter {
     @Override
-    public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
-        if (n.asString().equals("StringWriter")) {
-            n.setName("Writable");
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(ClassOrInterfaceType.class);
+    }
+
+    @Override
+    public Visitable rewrite(final Node n) {
+        final ClassOrInterfaceType type = (ClassOrInterfaceType) n;
+        if (type.asString().equals("StringWriter")) {
+            type.setName("Writable");
         }
+        return n;
+    }
+
+    @Override
+    public Visitable visit(final ClassOrInterfaceType n, final Void arg) {
+        rewrite(n);
         return super.visit(n, arg);
     }
 }
@@ -1,5 +1,6 @@
 package org.javatots.transformers;
 
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.expr.AnnotationExpr;
 import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
 import com.github.javaparser.ast.expr.NormalAnnotationExpr;
@@ -7,10 +8,20 @@ import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
 import com.github.javaparser.ast.visitor.ModifierVisitor;
 import com.github.javaparser.ast.visitor.Visitable;
 
+import java.util.Set;
+
 /**
  * Remove `lombok.extern.slf4j.Slf4j` annotations.
  */
-public class LombokSlf4jVisitor extends ModifierVisitor<Void> {
+public class LombokSlf4jVisitor extends ModifierVisitor<Void> implements NodeRewriter {
+    @Override
+    public Set<Class<? extends Node>> getNodeTypes() {
+        return Set.of(MarkerAnnotationExpr.class, SingleMemberAnnotationExpr.class, NormalAnnotationExpr.class);
+    }
+
+    @Override
+    public Visitable rewrite(final Node n) { rm((AnnotationExpr) n, null); return n; }
+
     @Override
     public Visitable visit(final MarkerAnnotationExpr n, final Void arg) { rm(n, arg); return super.visit(n, arg); }
 
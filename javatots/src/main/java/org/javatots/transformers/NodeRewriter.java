@@ -0,0 +1,24 @@
+package org.javatots.transformers;
+
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.visitor.Visitable;
+
+import java.util.Set;
+
+/**
+ * A pre-processor which can share a single AST traversal with other pre-processors (see FusedRewriteVisitor).
+ */
+public interface NodeRewriter {
+    /**
+     * @return the AST node classes that `rewrite` wants to see.
+     */
+    Set<Class<? extends Node>> getNodeTypes();
+
+    /**
+     * Rewrite one node without visiting its children; those are visited by the caller.
+     * A replacement isn't visited again by this rewriter (but is by the others).
+     * @param n a node whose class is in getNodeTypes()
+     * @return n, a replacement node, or null to remove n
+     */
+    Visitable rewrite(Node n);
+}